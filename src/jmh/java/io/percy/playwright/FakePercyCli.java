@@ -0,0 +1,139 @@
+package io.percy.playwright;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for the Percy CLI's local server: answers healthcheck, dom.js, widths-config,
+ * snapshot and log requests after a configurable delay, and discards what it receives.
+ *
+ * <p>Without a real {@code @percy/dom} build it serves a minimal {@code PercyDOM} that
+ * serializes {@code document.documentElement.outerHTML}, so the browser side of a
+ * snapshot is cheaper than in production. Pass the path of a real {@code dom.js} to
+ * measure the full serializer.</p>
+ */
+class FakePercyCli {
+    static final String STUB_DOM_JS =
+            "window.PercyDOM = {"
+            + "  serialize: (options) => ({"
+            + "    html: document.documentElement.outerHTML, resources: [], warnings: []"
+            + "  }),"
+            + "  waitForResize: () => {"
+            + "    if (!window.__percyResizeListener) {"
+            + "      window.__percyResizeListener = true;"
+            + "      window.addEventListener('resize', () => { window.resizeCount++; });"
+            + "    }"
+            + "    window.resizeCount = 0;"
+            + "  }"
+            + "};";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final long latencyMs;
+    private final byte[] domScript;
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong snapshotBytes = new AtomicLong();
+
+    /**
+     * @param port      Port to listen on; Percy talks to {@code localhost:5338} by default.
+     * @param latencyMs Delay before every answer, standing in for CLI processing time.
+     * @param domScript A real {@code dom.js} to serve, or {@code null} for the stub.
+     */
+    FakePercyCli(int port, long latencyMs, Path domScript) throws IOException {
+        this.latencyMs = latencyMs;
+        this.domScript = (domScript != null)
+                ? Files.readAllBytes(domScript)
+                : STUB_DOM_JS.getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    long snapshots() {
+        return snapshots.get();
+    }
+
+    long snapshotBytes() {
+        return snapshotBytes.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        long received = drain(exchange.getRequestBody());
+        pause();
+
+        switch (path) {
+            case "/percy/healthcheck":
+                exchange.getResponseHeaders().add("x-percy-core-version", "1.30.0");
+                respond(exchange, "application/json", "{\"success\":true,\"type\":\"web\",\"config\":{}}");
+                break;
+            case "/percy/dom.js":
+                respond(exchange, "application/javascript", domScript);
+                break;
+            case "/percy/widths-config":
+                respond(exchange, "application/json",
+                        "{\"widths\":[{\"width\":375,\"height\":667},{\"width\":768,\"height\":1024},{\"width\":1280}]}");
+                break;
+            case "/percy/snapshot":
+                snapshots.incrementAndGet();
+                snapshotBytes.addAndGet(received);
+                respond(exchange, "application/json", "{\"success\":true,\"data\":{\"status\":\"success\"}}");
+                break;
+            default:
+                respond(exchange, "application/json", "{\"success\":true}");
+        }
+    }
+
+    private void pause() {
+        if (latencyMs <= 0) { return; }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long drain(InputStream body) throws IOException {
+        long total = 0;
+        byte[] chunk = new byte[8192];
+        int read;
+        try (InputStream in = body) {
+            while ((read = in.read(chunk)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        respond(exchange, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
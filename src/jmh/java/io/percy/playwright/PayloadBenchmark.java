@@ -0,0 +1,135 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.options.Cookie;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Java-side cost of turning a serialized DOM into the body POSTed to the
+ * Percy CLI, for payloads from {@link PayloadFixtures}.
+ *
+ * <p>{@link #legacyStringEntity} is the path the SDK used to take (render the payload
+ * into a {@link JSONObject}, then a {@code String}, then a {@link StringEntity}) and is
+ * kept as the baseline for the streamed, compressed and deduplicated paths. Run with
+ * {@code mvn -Pbenchmarks test-compile exec:exec}; the default arguments enable JMH's
+ * GC profiler, which reports the allocation rate ({@code gc.alloc.rate.norm}) next to
+ * the throughput.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PayloadBenchmark {
+
+    @Param({PayloadFixtures.SMALL, PayloadFixtures.FIVE_MB, PayloadFixtures.FIFTY_MB, PayloadFixtures.RESPONSIVE})
+    public String size;
+
+    private Object domSnapshot;
+    private Map<String, Object> payload;
+    private List<Cookie> cookies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        domSnapshot = PayloadFixtures.domSnapshot(size);
+        payload = PayloadFixtures.payload(domSnapshot);
+        cookies = PayloadFixtures.cookies();
+    }
+
+    /** Copying the evaluated DOM map and attaching cookies, once per width. */
+    @Benchmark
+    public Object assembleSnapshot() {
+        if (domSnapshot instanceof List) {
+            Object last = null;
+            for (Object width : (List<?>) domSnapshot) {
+                last = assemble(width);
+            }
+            return last;
+        }
+        return assemble(domSnapshot);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> assemble(Object dom) {
+        Map<String, Object> snapshot = new HashMap<>((Map<String, Object>) dom);
+        snapshot.put("cookies", Percy.serializeCookies(cookies));
+        return snapshot;
+    }
+
+    /** Baseline: JSONObject, String and StringEntity copies of the whole payload. */
+    @Benchmark
+    public long legacyStringEntity() throws IOException {
+        String json = new JSONObject(payload).toString();
+        return send(new StringEntity(json, ContentType.APPLICATION_JSON));
+    }
+
+    /** The payload streamed straight into the request body. */
+    @Benchmark
+    public long streamedEntity() throws IOException {
+        return send(RequestCompression.jsonEntity(payload, false));
+    }
+
+    /** The streamed payload gzip-compressed, as sent to a CLI that accepts it. */
+    @Benchmark
+    public long gzipEntity() throws IOException {
+        return send(RequestCompression.jsonEntity(payload, true));
+    }
+
+    /** Rewriting a responsive payload into shared resources before it is streamed. */
+    @Benchmark
+    public long resourceDedupEntity() throws IOException {
+        Map<String, Object> deduplicated = new LinkedHashMap<>(payload);
+        ResourceDedup.apply(deduplicated);
+        return send(RequestCompression.jsonEntity(deduplicated, false));
+    }
+
+    /** Hashing the payload for duplicate-snapshot detection. */
+    @Benchmark
+    public String contentHash() {
+        return ContentHash.sha256(payload);
+    }
+
+    private static long send(HttpEntity entity) throws IOException {
+        CountingSink sink = new CountingSink();
+        entity.writeTo(sink);
+        return sink.count;
+    }
+
+    /** Stands in for the socket: counts bytes so the write cannot be optimized away. */
+    private static final class CountingSink extends OutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
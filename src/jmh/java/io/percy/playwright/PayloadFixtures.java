@@ -0,0 +1,170 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.options.Cookie;
+import com.microsoft.playwright.options.SameSiteAttribute;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds snapshot payloads shaped like the ones {@code PercyDOM.serialize} returns for
+ * the test app, scaled to a target size.
+ *
+ * <p>Payloads are generated rather than checked in so the repository stays small. The
+ * markup repeats TodoMVC list items around the test app's real {@code index.html}, and
+ * the resources are the app's stylesheets and scripts plus base64 image blobs, which is
+ * roughly how large real pages split between markup and assets. Generation is seeded,
+ * so every run measures the same bytes.</p>
+ */
+final class PayloadFixtures {
+    static final String SMALL = "small";
+    static final String FIVE_MB = "5mb";
+    static final String FIFTY_MB = "50mb";
+    static final String RESPONSIVE = "responsive";
+
+    private static final int MB = 1024 * 1024;
+    private static final String ORIGIN = "http://localhost:8000/";
+    private static final List<String> ASSETS = Arrays.asList("base.css", "index.css", "base.js", "bundle.js");
+    private static final List<Integer> RESPONSIVE_WIDTHS = Arrays.asList(375, 768, 1280, 1920);
+
+    private PayloadFixtures() { }
+
+    /**
+     * @return The {@code domSnapshot} for {@code size}: one DOM map, or a list of
+     *         per-width DOM maps sharing their resources for {@link #RESPONSIVE}.
+     */
+    static Object domSnapshot(String size) {
+        switch (size) {
+            case SMALL:
+                return dom(64 * 1024, 1280, new Random(1));
+            case FIVE_MB:
+                return dom(5 * MB, 1280, new Random(5));
+            case FIFTY_MB:
+                return dom(50 * MB, 1280, new Random(50));
+            case RESPONSIVE:
+                List<Map<String, Object>> widths = new ArrayList<>();
+                for (int width : RESPONSIVE_WIDTHS) {
+                    // Same seed: only the width-specific markup differs, like a real resize
+                    widths.add(dom(MB, width, new Random(4)));
+                }
+                return widths;
+            default:
+                throw new IllegalArgumentException("Unknown payload size " + size);
+        }
+    }
+
+    /**
+     * @return A payload as {@code Percy#postSnapshot} assembles it around {@code domSnapshot}.
+     */
+    static Map<String, Object> payload(Object domSnapshot) {
+        Map<String, Object> payload = new LinkedHashMap<>(options());
+        payload.put("url", ORIGIN + "index.html");
+        payload.put("name", "Benchmark snapshot");
+        payload.put("domSnapshot", domSnapshot);
+        payload.put("clientInfo", "percy-playwright-java/benchmark");
+        payload.put("environmentInfo", "playwright-java; java");
+        return payload;
+    }
+
+    static Map<String, Object> options() {
+        Map<String, Object> options = new HashMap<>();
+        options.put("widths", RESPONSIVE_WIDTHS);
+        options.put("minHeight", 1024);
+        options.put("enableJavaScript", false);
+        options.put("percyCSS", "iframe { display: none; }");
+        return options;
+    }
+
+    static List<Cookie> cookies() {
+        List<Cookie> cookies = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Cookie cookie = new Cookie("session_" + i, "v" + i + "-" + Integer.toHexString(i * 7919));
+            cookie.domain = "localhost";
+            cookie.path = "/";
+            cookie.expires = 1.7e9 + i;
+            cookie.httpOnly = i % 2 == 0;
+            cookie.secure = false;
+            cookie.sameSite = SameSiteAttribute.LAX;
+            cookies.add(cookie);
+        }
+        return cookies;
+    }
+
+    private static Map<String, Object> dom(int targetBytes, int width, Random random) {
+        List<Map<String, Object>> resources = new ArrayList<>();
+        int resourceBytes = 0;
+        for (String asset : ASSETS) {
+            String content = asset(asset);
+            resources.add(resource(ORIGIN + asset, asset.endsWith(".css") ? "text/css" : "application/javascript", content));
+            resourceBytes += content.length();
+        }
+        // About a third of a large page is images
+        int image = 0;
+        while (resourceBytes < targetBytes / 3) {
+            byte[] pixels = new byte[Math.min(192 * 1024, targetBytes / 3 - resourceBytes + 3)];
+            random.nextBytes(pixels);
+            String content = Base64.getEncoder().encodeToString(pixels);
+            resources.add(resource(ORIGIN + "img/photo-" + image++ + ".png", "image/png", content));
+            resourceBytes += content.length();
+        }
+
+        Map<String, Object> dom = new HashMap<>();
+        dom.put("html", html(targetBytes - resourceBytes, width, random));
+        dom.put("warnings", new ArrayList<>());
+        dom.put("resources", resources);
+        dom.put("cookies", Percy.serializeCookies(cookies()));
+        return dom;
+    }
+
+    private static Map<String, Object> resource(String url, String mimetype, String content) {
+        Map<String, Object> resource = new HashMap<>();
+        resource.put("url", url);
+        resource.put("mimetype", mimetype);
+        resource.put("content", content);
+        return resource;
+    }
+
+    private static String html(int targetChars, int width, Random random) {
+        String page = asset("index.html");
+        int listStart = page.indexOf("<ul class=\"todo-list\">");
+        String head = (listStart >= 0) ? page.substring(0, listStart) : "<html><body>";
+        String tail = (listStart >= 0) ? page.substring(listStart) : "</body></html>";
+
+        StringBuilder html = new StringBuilder(Math.max(targetChars, 0) + 256);
+        html.append(head).append("<ul class=\"todo-list\" data-percy-width=\"").append(width).append("\">\n");
+        for (int item = 0; html.length() < targetChars - tail.length(); item++) {
+            html.append("<li data-id=\"").append(item).append("\" data-percy-element-id=\"_")
+                    .append(Long.toString(random.nextLong() & Long.MAX_VALUE, 36)).append("\">")
+                    .append("<div class=\"view\"><input class=\"toggle\" type=\"checkbox\"")
+                    .append(random.nextInt(4) == 0 ? " checked" : "").append(">")
+                    .append("<label>Todo ").append(item).append(" ☃ \"buy milk\" & <eggs>\t</label>")
+                    .append("<button class=\"destroy\"></button></div></li>\n");
+        }
+        return html.append(tail).toString();
+    }
+
+    private static String asset(String name) {
+        try (InputStream in = PayloadFixtures.class.getResourceAsStream("/testapp/" + name)) {
+            if (in == null) { return "/* " + name + " */"; }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read test app asset " + name, e);
+        }
+    }
+}
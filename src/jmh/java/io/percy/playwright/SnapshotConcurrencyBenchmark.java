@@ -0,0 +1,244 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end snapshot throughput against a {@link FakePercyCli}, as the number of pages
+ * taking snapshots in parallel grows.
+ *
+ * <p>Every worker thread owns a Playwright instance, browser and page, since Playwright
+ * objects must stay on the thread that created them. Workers cycle through the test app
+ * pages served by {@link TestServer} and time each {@link Percy#snapshot} call. Browser
+ * start-up and one warm-up snapshot per worker are excluded from the numbers. For each
+ * concurrency level it prints snapshots per second, p50/p95/p99 latency, and the mean
+ * serialize and POST times reported through {@link SnapshotListener}.</p>
+ *
+ * <p>Run with
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Dbenchmark.main=io.percy.playwright.SnapshotConcurrencyBenchmark -Dbenchmark.args="--concurrency 1,2,4,8"}.
+ * Options:</p>
+ * <ul>
+ *   <li>{@code --concurrency 1,2,4,8}: parallel pages per run.</li>
+ *   <li>{@code --snapshots 20}: snapshots per worker per run.</li>
+ *   <li>{@code --latency 50}: fake CLI delay in milliseconds before every answer.</li>
+ *   <li>{@code --pages index,responsive-capture,cors-iframe}: test app pages to cycle through.
+ *       {@code responsive-capture} is taken with {@code responsiveSnapshotCapture}.</li>
+ *   <li>{@code --browser chromium}: {@code chromium}, {@code firefox} or {@code webkit}.</li>
+ *   <li>{@code --dom-js path}: a real {@code dom.js} to serve instead of the stub.</li>
+ * </ul>
+ * <p>The fake CLI listens on the port of {@code PERCY_SERVER_ADDRESS}, 5338 by default,
+ * so no Percy CLI may be running at the same time. {@code cors-iframe} embeds an
+ * external site and needs network access.</p>
+ */
+public class SnapshotConcurrencyBenchmark {
+    private static final String TEST_APP = "http://localhost:8000/";
+
+    private final List<Integer> concurrency;
+    private final int snapshotsPerWorker;
+    private final List<String> pages;
+    private final String browserName;
+
+    private final AtomicLong serializeNanos = new AtomicLong();
+    private final AtomicLong postNanos = new AtomicLong();
+    private final AtomicLong measured = new AtomicLong();
+
+    SnapshotConcurrencyBenchmark(List<Integer> concurrency, int snapshotsPerWorker,
+                                 List<String> pages, String browserName) {
+        this.concurrency = concurrency;
+        this.snapshotsPerWorker = snapshotsPerWorker;
+        this.pages = pages;
+        this.browserName = browserName;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        List<Integer> concurrency = new ArrayList<>();
+        for (String level : options.getOrDefault("concurrency", "1,2,4,8").split(",")) {
+            concurrency.add(Integer.parseInt(level.trim()));
+        }
+        int snapshots = Integer.parseInt(options.getOrDefault("snapshots", "20"));
+        long latencyMs = Long.parseLong(options.getOrDefault("latency", "50"));
+        List<String> pages = Arrays.asList(options.getOrDefault("pages", "index,responsive-capture,cors-iframe").split(","));
+        String browser = options.getOrDefault("browser", "chromium");
+        Path domJs = options.containsKey("dom-js") ? Paths.get(options.get("dom-js")) : null;
+
+        FakePercyCli cli = new FakePercyCli(cliPort(), latencyMs, domJs);
+        cli.start();
+        TestServer.startServer();
+        try {
+            System.out.printf(Locale.ROOT, "Fake CLI latency %dms, %d snapshots per worker, pages %s, %s%n",
+                    latencyMs, snapshots, pages, browser);
+            System.out.printf(Locale.ROOT, "%11s %9s %6s %12s %9s %9s %9s %13s %8s%n",
+                    "concurrency", "snapshots", "failed", "snapshots/s", "p50 ms", "p95 ms", "p99 ms",
+                    "serialize ms", "post ms");
+            new SnapshotConcurrencyBenchmark(concurrency, snapshots, pages, browser).run();
+            System.out.printf(Locale.ROOT, "Fake CLI received %d snapshots, %.1f MB%n",
+                    cli.snapshots(), cli.snapshotBytes() / (1024.0 * 1024.0));
+        } finally {
+            TestServer.shutdown();
+            cli.stop();
+        }
+    }
+
+    void run() throws Exception {
+        SnapshotListener listener = metrics -> {
+            serializeNanos.addAndGet(metrics.getPhaseNanos().getOrDefault(SnapshotMetrics.SERIALIZE, 0L));
+            postNanos.addAndGet(metrics.getPhaseNanos().getOrDefault(SnapshotMetrics.POST, 0L));
+        };
+        Percy.addSnapshotListener(listener);
+        try {
+            for (int workers : concurrency) {
+                runLevel(workers);
+            }
+        } finally {
+            Percy.removeSnapshotListener(listener);
+        }
+    }
+
+    private void runLevel(int workers) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        CountDownLatch ready = new CountDownLatch(workers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        for (int worker = 0; worker < workers; worker++) {
+            final int id = worker;
+            results.add(pool.submit(() -> work(id, workers, ready, go)));
+        }
+
+        ready.await();
+        serializeNanos.set(0);
+        postNanos.set(0);
+        measured.set(0);
+        long started = System.nanoTime();
+        go.countDown();
+
+        List<Long> latencies = new ArrayList<>();
+        int failed = 0;
+        for (Future<List<Long>> result : results) {
+            for (Long latency : result.get()) {
+                if (latency < 0) {
+                    failed++;
+                } else {
+                    latencies.add(latency);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        pool.shutdown();
+
+        Collections.sort(latencies);
+        long snapshots = latencies.size() + failed;
+        long reported = Math.max(1, measured.get());
+        System.out.printf(Locale.ROOT, "%11d %9d %6d %12.2f %9.1f %9.1f %9.1f %13.1f %8.1f%n",
+                workers, snapshots, failed,
+                latencies.size() / (elapsed / 1e9),
+                millis(percentile(latencies, 50)), millis(percentile(latencies, 95)), millis(percentile(latencies, 99)),
+                millis(serializeNanos.get() / reported), millis(postNanos.get() / reported));
+    }
+
+    /**
+     * Takes {@link #snapshotsPerWorker} snapshots once every worker is ready.
+     *
+     * @return Nanoseconds per snapshot, {@code -1} for snapshots that returned nothing.
+     */
+    private List<Long> work(int id, int workers, CountDownLatch ready, CountDownLatch go) throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        Playwright playwright = null;
+        try {
+            Page page;
+            Percy percy;
+            try {
+                playwright = Playwright.create();
+                Browser browser = browserType(playwright).launch(new BrowserType.LaunchOptions().setHeadless(true));
+                page = browser.newPage();
+                percy = new Percy(page);
+                // Warm-up: first navigation, dom.js fetch and JIT
+                snapshot(percy, page, pages.get(0), "warm-up " + workers + "/" + id);
+            } finally {
+                ready.countDown();
+            }
+            go.await();
+
+            for (int i = 0; i < snapshotsPerWorker; i++) {
+                String name = pages.get((id + i) % pages.size());
+                long started = System.nanoTime();
+                boolean ok = snapshot(percy, page, name, name + " " + workers + "/" + id + "/" + i);
+                latencies.add(ok ? System.nanoTime() - started : -1L);
+                measured.incrementAndGet();
+            }
+        } finally {
+            if (playwright != null) { playwright.close(); }
+        }
+        return latencies;
+    }
+
+    private static boolean snapshot(Percy percy, Page page, String testPage, String name) {
+        try {
+            page.navigate(TEST_APP + (testPage.equals("index") ? "" : testPage + ".html"));
+            Map<String, Object> options = new HashMap<>();
+            if (testPage.equals("responsive-capture")) {
+                options.put("responsiveSnapshotCapture", true);
+            }
+            return percy.snapshot(name, options) != null;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private BrowserType browserType(Playwright playwright) {
+        switch (browserName) {
+            case "firefox":
+                return playwright.firefox();
+            case "webkit":
+                return playwright.webkit();
+            default:
+                return playwright.chromium();
+        }
+    }
+
+    // Nearest-rank percentile of sorted values
+    static long percentile(List<Long> sorted, int percent) {
+        if (sorted.isEmpty()) { return 0; }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static int cliPort() {
+        String address = System.getenv().getOrDefault("PERCY_SERVER_ADDRESS", "http://localhost:5338");
+        int port = URI.create(address).getPort();
+        return (port > 0) ? port : 5338;
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got " + Arrays.toString(args));
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -1,8 +1,31 @@
 package io.percy.playwright;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Process-wide cache shared by every {@code Percy} instance, currently holding the
+ * BrowserStack Automate session details looked up by {@link PageMetadata}.
+ *
+ * <p>Entries expire after {@code PERCY_CACHE_TTL} seconds (default one hour) and at most
+ * {@code PERCY_CACHE_MAX_ENTRIES} (default 256) are kept, so a long parallel run does not
+ * hold on to every session it ever saw.</p>
+ */
 public class Cache {
-    public static final Map CACHE_MAP = new HashMap();
+    // Kept separately typed so CACHE_MAP can stay declared as the Map it always was
+    private static final ExpiringCache<String, Object> ENTRIES = new ExpiringCache<>(
+            Environment.getIntEnv("PERCY_CACHE_MAX_ENTRIES", 256),
+            Environment.getIntEnv("PERCY_CACHE_TTL", 3600),
+            TimeUnit.SECONDS);
+
+    public static final Map<String, Object> CACHE_MAP = ENTRIES;
+
+    /**
+     * Returns the entry for {@code key}, running {@code loader} at most once per key at a
+     * time when it is missing or expired.
+     */
+    static Object getOrCompute(String key, Callable<?> loader) throws Exception {
+        return ENTRIES.getOrCompute(key, loader);
+    }
 }
@@ -0,0 +1,143 @@
+package io.percy.playwright;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Package-private, process-wide memo of Percy CLI answers that do not change during a
+ * build: the healthcheck result and {@code /percy/widths-config} lookups.
+ *
+ * <p>Entries live for {@code PERCY_CLI_CACHE_TTL} seconds (0 disables caching) or until
+ * {@link #invalidate()} is called. A "Percy is not running" healthcheck is cached too, so
+ * a disabled run only probes the CLI once. Failed widths-config lookups throw and are not
+ * cached. Concurrent misses on the same key share a single CLI call. A CLI that refused
+ * a gzip-compressed body is remembered by {@link #rejectGzip(String)} for the rest of
+ * the run, so later healthchecks against it no longer advertise gzip.</p>
+ */
+class CliCache {
+    // How long cached CLI answers stay valid (seconds)
+    private static final long TTL_NANOS =
+            TimeUnit.SECONDS.toNanos(Environment.getIntEnv("PERCY_CLI_CACHE_TTL", 300));
+
+    private static final ConcurrentHashMap<String, Entry<Healthcheck>> HEALTHCHECKS =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Entry<List<Map<String, Object>>>> WIDTHS =
+            new ConcurrentHashMap<>();
+    // Addresses of CLIs that answered a compressed body with 415
+    private static final Set<String> GZIP_REJECTED = ConcurrentHashMap.newKeySet();
+
+    /**
+     * What a healthcheck learned about the CLI.
+     */
+    static final class Healthcheck {
+        static final Healthcheck DISABLED = new Healthcheck(false, null, null, false, null);
+
+        final boolean enabled;
+        final String sessionType;
+        final JSONObject config;
+        final boolean acceptsGzip;
+        final String coreVersion;
+        final boolean acceptsResourceRefs;
+
+        Healthcheck(boolean enabled, String sessionType, JSONObject config, boolean acceptsGzip,
+                    String coreVersion) {
+            this(enabled, sessionType, config, acceptsGzip, coreVersion, false);
+        }
+
+        Healthcheck(boolean enabled, String sessionType, JSONObject config, boolean acceptsGzip,
+                    String coreVersion, boolean acceptsResourceRefs) {
+            this.enabled = enabled;
+            this.sessionType = sessionType;
+            this.config = config;
+            this.acceptsGzip = acceptsGzip;
+            this.coreVersion = coreVersion;
+            this.acceptsResourceRefs = acceptsResourceRefs;
+        }
+
+        Healthcheck withoutGzip() {
+            return new Healthcheck(enabled, sessionType, config, false, coreVersion, acceptsResourceRefs);
+        }
+
+        /**
+         * @return A copy of the CLI config the caller is free to modify, or {@code null}.
+         */
+        JSONObject configCopy() {
+            return config == null ? null : new JSONObject(config.toString());
+        }
+    }
+
+    private static final class Entry<T> {
+        final T value;
+        final long expiresAt;
+
+        Entry(T value) {
+            this.value = value;
+            this.expiresAt = System.nanoTime() + TTL_NANOS;
+        }
+
+        boolean isFresh() {
+            return System.nanoTime() - expiresAt < 0;
+        }
+    }
+
+    private CliCache() { }
+
+    /**
+     * @param serverAddress The CLI address the healthcheck is made against.
+     * @param probe         Performs the healthcheck on a miss.
+     */
+    static Healthcheck healthcheck(String serverAddress, Supplier<Healthcheck> probe) {
+        Healthcheck result = memoize(HEALTHCHECKS, serverAddress, probe);
+        return result.acceptsGzip && GZIP_REJECTED.contains(serverAddress) ? result.withoutGzip() : result;
+    }
+
+    /**
+     * Records that the CLI at {@code serverAddress} refused a compressed request body, so
+     * Percy instances created from now on send it uncompressed straight away.
+     */
+    static void rejectGzip(String serverAddress) {
+        GZIP_REJECTED.add(serverAddress);
+    }
+
+    /**
+     * @param url   Full widths-config URL, query string included.
+     * @param fetch Performs the lookup on a miss; may throw.
+     * @return A fresh copy of the cached width/height pairs.
+     */
+    static List<Map<String, Object>> widths(String url, Supplier<List<Map<String, Object>>> fetch) {
+        List<Map<String, Object>> cached = memoize(WIDTHS, url, fetch);
+        List<Map<String, Object>> copy = new ArrayList<>(cached.size());
+        for (Map<String, Object> item : cached) {
+            copy.add(new HashMap<>(item));
+        }
+        return copy;
+    }
+
+    /**
+     * Forgets every cached answer so the next lookup goes back to the CLI.
+     */
+    static void invalidate() {
+        HEALTHCHECKS.clear();
+        WIDTHS.clear();
+        GZIP_REJECTED.clear();
+    }
+
+    private static <T> T memoize(ConcurrentHashMap<String, Entry<T>> cache, String key, Supplier<T> loader) {
+        if (TTL_NANOS <= 0) { return loader.get(); }
+
+        Entry<T> entry = cache.get(key);
+        if (entry != null && entry.isFresh()) { return entry.value; }
+
+        // compute() runs the loader at most once per key while other callers wait
+        return cache.compute(key, (k, current) ->
+                current != null && current.isFresh() ? current : new Entry<>(loader.get())).value;
+    }
+}
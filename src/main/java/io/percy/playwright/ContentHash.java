@@ -0,0 +1,62 @@
+package io.percy.playwright;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Package-private SHA-256 of payload values, computed by streaming their JSON form (as
+ * {@link JsonStreamEntity} writes it) into the digest without building a String.
+ */
+class ContentHash {
+    private ContentHash() { }
+
+    /**
+     * @return The hex SHA-256 of {@code value} written as JSON.
+     */
+    static String sha256(Object value) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (Writer writer = new DigestWriter(digest)) {
+            JsonStreamEntity.write(value, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    // Feeds written characters to a digest as UTF-8
+    private static final class DigestWriter extends Writer {
+        private final MessageDigest digest;
+
+        DigestWriter(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            digest.update(new String(buffer, offset, length).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            digest.update(text.substring(offset, offset + length).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+}
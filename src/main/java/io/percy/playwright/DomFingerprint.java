@@ -0,0 +1,86 @@
+package io.percy.playwright;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Package-private tracker that lets responsive capture reuse the previous width's
+ * serialized DOM when a resize left the document unchanged.
+ *
+ * <p>{@link #JS} walks the document in the page and returns a short structural hash of
+ * element names, attributes (minus the {@code data-percy-*} markers the serializer adds),
+ * text, form state, open shadow roots, same-origin iframes and stylesheet rule counts:
+ * far less work than {@code PercyDOM.serialize}, and only a few bytes over the Playwright
+ * pipe. It returns {@code null} when the document holds state
+ * the hash cannot see (canvas bitmaps, cross-origin iframes), in which case the width is
+ * always serialized.</p>
+ */
+class DomFingerprint {
+    static final String JS =
+            "() => {"
+            + "  let a = 0x811c9dc5, b = 0x01000193, nodes = 0;"
+            + "  const mix = (s) => {"
+            + "    s = String(s);"
+            + "    for (let i = 0; i < s.length; i++) {"
+            + "      const c = s.charCodeAt(i);"
+            + "      a = Math.imul(a ^ c, 16777619);"
+            + "      b = Math.imul(b + c, 2654435761) ^ (b >>> 15);"
+            + "    }"
+            + "    a = Math.imul(a ^ 0x1f, 16777619);"
+            + "  };"
+            + "  const walk = (root) => {"
+            + "    const stack = [root];"
+            + "    while (stack.length) {"
+            + "      const node = stack.pop();"
+            + "      nodes++;"
+            + "      mix(node.nodeType);"
+            + "      if (node.nodeType === 3 || node.nodeType === 8) { mix(node.data); continue; }"
+            + "      if (node.nodeType === 1) {"
+            + "        const tag = node.nodeName;"
+            + "        if (tag === 'CANVAS') { return false; }"
+            + "        mix(tag);"
+            + "        for (const attr of node.attributes) {"
+            + "          if (attr.name.indexOf('data-percy-') !== 0) { mix(attr.name); mix(attr.value); }"
+            + "        }"
+            + "        if ('value' in node && (tag === 'INPUT' || tag === 'TEXTAREA' || tag === 'SELECT')) {"
+            + "          mix(node.value); mix(node.checked); mix(node.selectedIndex);"
+            + "        }"
+            + "        if (node.shadowRoot) { stack.push(node.shadowRoot); }"
+            + "        if (tag === 'IFRAME' || tag === 'FRAME') {"
+            + "          let doc = null;"
+            + "          try { doc = node.contentDocument; } catch (e) { }"
+            + "          if (!doc) { return false; }"
+            + "          stack.push(doc);"
+            + "        }"
+            + "      }"
+            + "      for (let child = node.lastChild; child; child = child.previousSibling) { stack.push(child); }"
+            + "    }"
+            + "    return true;"
+            + "  };"
+            + "  if (!walk(document)) { return null; }"
+            + "  for (const sheet of document.styleSheets) {"
+            + "    try { mix(sheet.cssRules.length); } catch (e) { mix('x'); }"
+            + "  }"
+            + "  return (a >>> 0).toString(16) + (b >>> 0).toString(16) + ':' + nodes;"
+            + "}";
+
+    private String lastFingerprint;
+    private Map<String, Object> lastDom;
+
+    /**
+     * @return A copy of the DOM remembered for {@code fingerprint}, or {@code null} if the
+     *         document changed since the previous width or cannot be fingerprinted.
+     */
+    Map<String, Object> reuse(String fingerprint) {
+        if (fingerprint == null || lastDom == null || !fingerprint.equals(lastFingerprint)) { return null; }
+        return new HashMap<>(lastDom);
+    }
+
+    /**
+     * Remembers the DOM serialized for {@code fingerprint}, replacing the previous one.
+     */
+    void remember(String fingerprint, Map<String, Object> dom) {
+        lastFingerprint = fingerprint;
+        lastDom = (fingerprint != null) ? dom : null;
+    }
+}
@@ -0,0 +1,176 @@
+package io.percy.playwright;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Package-private, JVM-wide cache of the PercyDOM script ({@code /percy/dom.js}).
+ *
+ * <p>The script is downloaded once per CLI address and core version and shared by every
+ * {@code Percy} instance. When {@code PERCY_DOM_CACHE_DIR} is set, it is also kept on
+ * disk as {@code dom-<core version>.js} so forked test JVMs and later runs against the
+ * same CLI version can skip the download. Access to the directory is serialized with a
+ * {@link FileLock}; if the CLI sent an {@code ETag}, the copy on disk is revalidated with
+ * {@code If-None-Match} once per JVM. Any problem with the directory falls back to a
+ * plain download.</p>
+ */
+class DomScriptCache {
+    // Optional directory shared between JVMs; empty disables the on-disk cache
+    private static final String CACHE_DIR = System.getenv().getOrDefault("PERCY_DOM_CACHE_DIR", "");
+
+    private static final DomScriptCache SHARED =
+            new DomScriptCache(CACHE_DIR.trim().isEmpty() ? null : Paths.get(CACHE_DIR));
+
+    /**
+     * Downloads dom.js, optionally conditionally.
+     */
+    interface Fetcher {
+        /**
+         * @param etag Validator of the copy on disk to send as {@code If-None-Match}, or
+         *             {@code null} for an unconditional request.
+         */
+        Download fetch(String etag) throws Exception;
+    }
+
+    /**
+     * Result of a dom.js request.
+     */
+    static final class Download {
+        static final Download NOT_MODIFIED = new Download(null, null);
+
+        final String script;
+        final String etag;
+
+        Download(String script, String etag) {
+            this.script = script;
+            this.etag = etag;
+        }
+    }
+
+    private final Path directory;
+    private final ConcurrentHashMap<String, String> scripts = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory Where to keep dom.js between JVMs, or {@code null} for memory only.
+     */
+    DomScriptCache(Path directory) {
+        this.directory = directory;
+    }
+
+    static DomScriptCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return The cached script for this CLI, downloading it through {@code fetcher} on a
+     *         miss.
+     * @throws Exception whatever {@code fetcher} throws when the download fails.
+     */
+    String get(String serverAddress, String coreVersion, Fetcher fetcher) throws Exception {
+        String key = serverAddress + "#" + coreVersion;
+        String script = scripts.get(key);
+        if (script != null) { return script; }
+
+        // One download per JVM; also keeps two threads from locking the same file
+        synchronized (this) {
+            script = scripts.get(key);
+            if (script == null) {
+                script = load(coreVersion, fetcher);
+                scripts.put(key, script);
+            }
+            return script;
+        }
+    }
+
+    /**
+     * Forgets the in-memory copies. The on-disk cache is left alone since it is keyed by
+     * CLI version.
+     */
+    void invalidate() {
+        scripts.clear();
+    }
+
+    private String load(String coreVersion, Fetcher fetcher) throws Exception {
+        if (directory == null || coreVersion == null) {
+            return fetcher.fetch(null).script;
+        }
+        try {
+            return loadThroughDisk(coreVersion, fetcher);
+        } catch (FetchException e) {
+            throw (Exception) e.getCause();
+        } catch (IOException | OverlappingFileLockException e) {
+            // Cache directory unusable; download without it
+            return fetcher.fetch(null).script;
+        }
+    }
+
+    private String loadThroughDisk(String coreVersion, Fetcher fetcher) throws IOException, FetchException {
+        Files.createDirectories(directory);
+        String base = "dom-" + coreVersion.replaceAll("[^A-Za-z0-9._-]", "_");
+        Path scriptFile = directory.resolve(base + ".js");
+        Path etagFile = directory.resolve(base + ".etag");
+        Path lockFile = directory.resolve(base + ".lock");
+
+        try (FileChannel channel = FileChannel.open(lockFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            String etag = null;
+            if (Files.exists(scriptFile)) {
+                if (!Files.exists(etagFile)) {
+                    // Keyed by version and nothing to revalidate against
+                    return read(scriptFile);
+                }
+                etag = read(etagFile);
+            }
+
+            Download download;
+            try {
+                download = fetcher.fetch(etag);
+            } catch (Exception e) {
+                throw new FetchException(e);
+            }
+            if (download.script == null) {
+                return read(scriptFile);
+            }
+
+            write(scriptFile, download.script);
+            if (download.etag != null) {
+                write(etagFile, download.etag);
+            } else {
+                Files.deleteIfExists(etagFile);
+            }
+            return download.script;
+        }
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    // Write then rename so a crash never leaves a truncated script behind
+    private void write(Path file, String content) throws IOException {
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Carries a fetch failure past the disk-error fallback in load()
+    private static final class FetchException extends Exception {
+        FetchException(Exception cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.percy.playwright;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Package-private JVM-wide index of the snapshots posted so far, keyed by snapshot name,
+ * used to spot identical re-posts from retried or parameterized tests.
+ *
+ * <p>Each entry holds the {@link ContentHash} of the last snapshot payload (URL, options
+ * and DOM) the CLI accepted under that name, so a snapshot whose upload failed is never
+ * treated as a duplicate of itself. Values that differ on every capture of the same page,
+ * the readiness timings and the element ids PercyDOM generates, are left out of the hash.
+ * What happens to an identical duplicate is chosen with {@code PERCY_DUPLICATE_SNAPSHOTS}:
+ * {@code upload} (the default) posts it as before without hashing anything, {@code warn}
+ * posts it and logs, {@code skip} drops it.</p>
+ */
+class DuplicateSnapshots {
+    enum Outcome { NEW, CHANGED, DUPLICATE }
+
+    static final String UPLOAD = "upload";
+    static final String WARN = "warn";
+    static final String SKIP = "skip";
+
+    private static final Map<String, String> INDEX = new ConcurrentHashMap<>();
+
+    // Assigned by PercyDOM.serialize to elements it needs to refer back to; new on every call
+    private static final Pattern ELEMENT_ID = Pattern.compile("\\sdata-percy-element-id=\"[^\"]*\"");
+
+    private DuplicateSnapshots() { }
+
+    /**
+     * @return {@code true} if {@code mode} needs the index consulted at all.
+     */
+    static boolean isTracking(String mode) {
+        return WARN.equalsIgnoreCase(mode) || SKIP.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * @return The hash of {@code payload} without the values that change on every capture.
+     */
+    static String fingerprint(Map<String, Object> payload) {
+        Map<String, Object> stable = new LinkedHashMap<>(payload);
+        Object dom = stable.get("domSnapshot");
+        if (dom instanceof List) {
+            List<Object> doms = new ArrayList<>();
+            for (Object capture : (List<?>) dom) {
+                doms.add(stableDom(capture));
+            }
+            stable.put("domSnapshot", doms);
+        } else if (dom != null) {
+            stable.put("domSnapshot", stableDom(dom));
+        }
+        return ContentHash.sha256(stable);
+    }
+
+    /**
+     * @return Whether the name is new, was uploaded before with other content, or was
+     *         uploaded before with content of the same {@code hash}.
+     */
+    static Outcome check(String name, String hash) {
+        String previous = INDEX.get(name);
+        if (previous == null) { return Outcome.NEW; }
+        return previous.equals(hash) ? Outcome.DUPLICATE : Outcome.CHANGED;
+    }
+
+    /**
+     * Records {@code hash} as the latest content the CLI accepted under {@code name}.
+     */
+    static void record(String name, String hash) {
+        INDEX.put(name, hash);
+    }
+
+    private static Object stableDom(Object capture) {
+        if (!(capture instanceof Map)) { return capture; }
+        Map<String, Object> stable = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) capture).entrySet()) {
+            stable.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        stable.remove("readiness_diagnostics");
+        Object html = stable.get("html");
+        if (html instanceof String) {
+            stable.put("html", ELEMENT_ID.matcher((String) html).replaceAll(""));
+        }
+        return stable;
+    }
+
+    static void clear() {
+        INDEX.clear();
+    }
+}
@@ -38,4 +38,23 @@ class Environment {
     public static String getSdkVersion() {
         return SDK_VERSION;
     }
+
+    /**
+     * Reads an integer tuning knob from the process environment, falling back to
+     * {@code defaultValue} when the variable is unset or not a number.
+     */
+    static int getIntEnv(String name, int defaultValue) {
+        return parseInt(System.getenv(name), defaultValue);
+    }
+
+    static int parseInt(String value, int defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 }
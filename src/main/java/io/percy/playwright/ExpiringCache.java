@@ -0,0 +1,217 @@
+package io.percy.playwright;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe map that forgets entries after a time-to-live and, once full, evicts the
+ * least recently used entry.
+ *
+ * <p>{@link #getOrCompute(Object, Callable)} runs the loader at most once per key at a
+ * time: callers that miss while a load is in flight wait for its result instead of
+ * starting their own, and a failed load is not cached. {@link #get(Object)} and
+ * {@code getOrCompute} count hits and misses. The {@link Map} view's other methods
+ * behave as for any map, except that expired entries are invisible and iterating
+ * works on a snapshot.</p>
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public final class ExpiringCache<K, V> extends AbstractMap<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    // Access-ordered, so the first entry is the least recently used; guarded by `this`
+    private final LinkedHashMap<K, Timed<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize Maximum number of entries; at least 1.
+     * @param ttl     How long an entry stays valid after it is written; {@code 0} keeps
+     *                entries until they are evicted for space.
+     * @param unit    The unit of {@code ttl}.
+     */
+    public ExpiringCache(int maxSize, long ttl, TimeUnit unit) {
+        this(maxSize, unit.toNanos(ttl), System::nanoTime);
+    }
+
+    ExpiringCache(int maxSize, long ttlNanos, LongSupplier clock) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = Math.max(0, ttlNanos);
+        this.clock = clock;
+    }
+
+    @Override
+    public V get(Object key) {
+        V value = peek(key);
+        (value != null ? hits : misses).incrementAndGet();
+        return value;
+    }
+
+    /**
+     * @return The cached value for {@code key}, or the value {@code loader} returns, which
+     *         is cached unless it is {@code null}.
+     * @throws Exception Whatever the loader threw, also to callers that waited for it.
+     */
+    public V getOrCompute(K key, Callable<? extends V> loader) throws Exception {
+        V value = get(key);
+        if (value != null) { return value; }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            // Another caller may have finished loading between our miss and putIfAbsent
+            value = peek(key);
+            if (value == null) {
+                value = loader.call();
+                if (value != null) { put(key, value); }
+            }
+            load.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        if (value == null) { throw new NullPointerException("ExpiringCache does not hold null values"); }
+        Timed<V> previous = entries.put(key, new Timed<>(value, clock.getAsLong()));
+        trim();
+        return unwrap(previous);
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        return unwrap(entries.remove(key));
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return peek(key) != null;
+    }
+
+    @Override
+    public synchronized int size() {
+        purgeExpired();
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return A snapshot of the unexpired entries; changing it does not change the cache.
+     */
+    @Override
+    public synchronized Set<Map.Entry<K, V>> entrySet() {
+        purgeExpired();
+        Map<K, V> copy = new LinkedHashMap<>();
+        for (Map.Entry<K, Timed<V>> entry : entries.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().value);
+        }
+        return Collections.unmodifiableMap(copy).entrySet();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Entries dropped because they expired or the cache was full.
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    // Looks a key up without counting a hit or miss
+    private synchronized V peek(Object key) {
+        Timed<V> entry = entries.get(key);
+        if (entry == null) { return null; }
+        if (isExpired(entry, clock.getAsLong())) {
+            entries.remove(key);
+            evictions.incrementAndGet();
+            return null;
+        }
+        return entry.value;
+    }
+
+    private void trim() {
+        purgeExpired();
+        Iterator<Timed<V>> eldest = entries.values().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void purgeExpired() {
+        if (ttlNanos == 0) { return; }
+        long now = clock.getAsLong();
+        Iterator<Timed<V>> values = entries.values().iterator();
+        while (values.hasNext()) {
+            if (isExpired(values.next(), now)) {
+                values.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isExpired(Timed<V> entry, long now) {
+        return ttlNanos > 0 && now - entry.writtenAt >= ttlNanos;
+    }
+
+    private static <V> V unwrap(Timed<V> entry) {
+        return (entry != null) ? entry.value : null;
+    }
+
+    private static <V> V await(CompletableFuture<V> load) throws Exception {
+        try {
+            return load.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) { throw (Exception) cause; }
+            if (cause instanceof Error) { throw (Error) cause; }
+            throw e;
+        }
+    }
+
+    private static final class Timed<V> {
+        final V value;
+        final long writtenAt;
+
+        Timed(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.percy.playwright;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Package-private cache of cross-origin iframe snapshots for the duration of one
+ * responsive snapshot.
+ *
+ * <p>Entries are keyed by frame URL plus the frame's {@link DomFingerprint}, so an
+ * ad or embed frame whose content did not change between widths, or several frames
+ * sharing a URL and content, are serialized once. Frames that cannot be fingerprinted
+ * are always serialized.</p>
+ */
+class FrameSnapshotCache {
+    private final Map<String, Map<String, Object>> snapshots = new HashMap<>();
+    private int hits = 0;
+
+    /**
+     * @return The snapshot cached for this URL and fingerprint, or the result of
+     *         {@code serialize}, which is cached when the fingerprint is known.
+     */
+    Map<String, Object> get(String url, String fingerprint, Supplier<Map<String, Object>> serialize) {
+        if (fingerprint == null) { return serialize.get(); }
+        String key = url + "\n" + fingerprint;
+        Map<String, Object> snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            hits++;
+            return snapshot;
+        }
+        snapshot = serialize.get();
+        if (snapshot != null) { snapshots.put(key, snapshot); }
+        return snapshot;
+    }
+
+    int hits() {
+        return hits;
+    }
+}
@@ -0,0 +1,108 @@
+package io.percy.playwright;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Package-private, process-wide HTTP transport used for every call to the Percy CLI.
+ *
+ * <p>All {@link Percy} instances share one pooled, keep-alive client so snapshots and
+ * log lines reuse open connections to the CLI instead of paying a fresh TCP connect per
+ * call. Pool sizing can be tuned with {@code PERCY_HTTP_MAX_CONNECTIONS} and
+ * {@code PERCY_HTTP_MAX_CONNECTIONS_PER_ROUTE}.</p>
+ *
+ * <p>Every request config also bounds how long a call waits to lease a pooled connection,
+ * so log and healthcheck calls fail fast instead of queueing behind long snapshot uploads
+ * once the pool is exhausted.</p>
+ */
+class HttpTransport {
+    // Upper bound of open connections across all routes
+    private static final int MAX_CONNECTIONS =
+            Environment.getIntEnv("PERCY_HTTP_MAX_CONNECTIONS", 20);
+
+    // Upper bound of open connections to the CLI (a single route in practice)
+    private static final int MAX_CONNECTIONS_PER_ROUTE =
+            Environment.getIntEnv("PERCY_HTTP_MAX_CONNECTIONS_PER_ROUTE", 10);
+
+    // Re-validate pooled connections that sat idle for longer than this (ms)
+    private static final int VALIDATE_AFTER_INACTIVITY = 1000;
+
+    // Close pooled connections that stay idle for longer than this (seconds)
+    private static final long MAX_IDLE_SECONDS = 30;
+
+    // Posting snapshots and automate screenshots can take a long time on the CLI side
+    static final RequestConfig SNAPSHOT_CONFIG = timeouts(600000, 600000); // 600 seconds
+
+    // Responsive widths lookup
+    static final RequestConfig WIDTHS_CONFIG = timeouts(30000, 30000); // 30 seconds
+
+    // Logging must never hold up the test for long
+    static final RequestConfig LOG_CONFIG = timeouts(1000, 1000); // 1 second
+
+    // Healthcheck and dom.js keep the client's socket and connect defaults
+    static final RequestConfig DEFAULT_CONFIG = RequestConfig.custom()
+            .setConnectionRequestTimeout(10000) // 10 seconds
+            .build();
+
+    private static PoolingHttpClientConnectionManager connectionManager;
+    private static CloseableHttpClient client;
+
+    private HttpTransport() { }
+
+    /**
+     * @return The shared client, created on first use.
+     */
+    static synchronized CloseableHttpClient client() {
+        if (client == null) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(Math.max(1, MAX_CONNECTIONS));
+            connectionManager.setDefaultMaxPerRoute(Math.max(1, MAX_CONNECTIONS_PER_ROUTE));
+            connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+
+            client = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(DEFAULT_CONFIG)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS)
+                    .build();
+        }
+        return client;
+    }
+
+    /**
+     * @return Leased/available connection counts of the shared pool, or {@code null}
+     *         when the client has not been created yet.
+     */
+    static synchronized PoolStats stats() {
+        return connectionManager == null ? null : connectionManager.getTotalStats();
+    }
+
+    /**
+     * Closes the shared client and its pooled connections. The next call to
+     * {@link #client()} builds a fresh one.
+     */
+    static synchronized void shutdown() {
+        if (client == null) { return; }
+        try {
+            client.close();
+        } catch (Exception e) {
+            // Nothing useful to do while tearing down
+        } finally {
+            client = null;
+            connectionManager = null;
+        }
+    }
+
+    private static RequestConfig timeouts(int timeout, int leaseTimeout) {
+        return RequestConfig.custom()
+                .setSocketTimeout(timeout)
+                .setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(leaseTimeout)
+                .build();
+    }
+}
@@ -0,0 +1,238 @@
+package io.percy.playwright;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Package-private request entity that serializes a JSON payload straight into the HTTP
+ * output stream.
+ *
+ * <p>A captured DOM can be several megabytes. Building a {@link JSONObject}, rendering it
+ * to a {@code String} and copying that into a {@code StringEntity} keeps three or four
+ * copies of it on the heap at once. This entity instead walks the payload ({@link Map},
+ * {@link Collection}, array, {@link JSONObject}, {@link JSONArray} or scalar) while the
+ * request is being sent, using chunked transfer encoding since the length is not known
+ * up front. Output matches what {@code new JSONObject(map).toString()} would produce:
+ * {@code null} map values are omitted and strings are escaped by
+ * {@link JSONObject#quote(String, Writer)}.</p>
+ */
+class JsonStreamEntity extends AbstractHttpEntity {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Object payload;
+    // Uncompressed bytes produced by the most recent writeTo
+    private volatile long bytesWritten = 0;
+
+    JsonStreamEntity(Object payload) {
+        this.payload = payload;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Buffers the whole body; only used by callers that need an {@link InputStream}.
+     * The HTTP client itself always goes through {@link #writeTo(OutputStream)}.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        CountingOutputStream counting = new CountingOutputStream(out);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(counting, StandardCharsets.UTF_8), BUFFER_SIZE);
+        write(payload, writer);
+        // Flush rather than close; the client owns the underlying stream
+        writer.flush();
+        bytesWritten = counting.count;
+    }
+
+    /**
+     * @return Size of the JSON written by the last {@link #writeTo(OutputStream)}, before
+     *         any compression applied by a wrapping entity.
+     */
+    long bytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Writes {@code value} as JSON.
+     */
+    static void write(Object value, Writer out) throws IOException {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            out.write("null");
+        } else if (value instanceof String) {
+            JSONObject.quote((String) value, out);
+        } else if (value instanceof Number) {
+            out.write(JSONObject.numberToString((Number) value));
+        } else if (value instanceof Boolean) {
+            out.write(value.toString());
+        } else if (value instanceof JSONString) {
+            out.write(JSONObject.valueToString(value));
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>) value, out);
+        } else if (value instanceof JSONObject) {
+            writeJSONObject((JSONObject) value, out);
+        } else if (value instanceof Collection) {
+            writeIterable((Collection<?>) value, out);
+        } else if (value instanceof JSONArray) {
+            writeIterable((JSONArray) value, out);
+        } else if (value.getClass().isArray()) {
+            writeArray(value, out);
+        } else if (value instanceof Enum) {
+            JSONObject.quote(((Enum<?>) value).name(), out);
+        } else {
+            // Beans and anything else: let org.json decide how to represent it
+            Object wrapped = JSONObject.wrap(value);
+            if (wrapped instanceof JSONObject || wrapped instanceof JSONArray) {
+                write(wrapped, out);
+            } else {
+                out.write(JSONObject.valueToString(wrapped));
+            }
+        }
+    }
+
+    /**
+     * Rough size of {@code value} once serialized, in characters. Used to decide whether
+     * a body is worth compressing without rendering it first.
+     */
+    static long estimateSize(Object value) {
+        if (value == null) {
+            return 4;
+        } else if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() + 2;
+        } else if (value instanceof Map) {
+            long size = 2;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() == null) { continue; }
+                size += String.valueOf(entry.getKey()).length() + 4 + estimateSize(entry.getValue());
+            }
+            return size;
+        } else if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            long size = 2;
+            for (String key : json.keySet()) {
+                size += key.length() + 4 + estimateSize(json.opt(key));
+            }
+            return size;
+        } else if (value instanceof Iterable) {
+            long size = 2;
+            for (Object element : (Iterable<?>) value) {
+                size += estimateSize(element) + 1;
+            }
+            return size;
+        } else if (value.getClass().isArray()) {
+            long size = 2;
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                size += estimateSize(Array.get(value, i)) + 1;
+            }
+            return size;
+        }
+        return 8;
+    }
+
+    private static void writeMap(Map<?, ?> map, Writer out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            // JSONObject(Map) drops null values; do the same
+            if (entry.getValue() == null) { continue; }
+            if (!first) { out.write(','); }
+            first = false;
+            JSONObject.quote(String.valueOf(entry.getKey()), out);
+            out.write(':');
+            write(entry.getValue(), out);
+        }
+        out.write('}');
+    }
+
+    private static void writeJSONObject(JSONObject json, Writer out) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (String key : json.keySet()) {
+            if (!first) { out.write(','); }
+            first = false;
+            JSONObject.quote(key, out);
+            out.write(':');
+            write(json.opt(key), out);
+        }
+        out.write('}');
+    }
+
+    private static void writeIterable(Iterable<?> values, Writer out) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Object element : values) {
+            if (!first) { out.write(','); }
+            first = false;
+            write(element, out);
+        }
+        out.write(']');
+    }
+
+    private static void writeArray(Object array, Writer out) throws IOException {
+        out.write('[');
+        int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) { out.write(','); }
+            write(Array.get(array, i), out);
+        }
+        out.write(']');
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
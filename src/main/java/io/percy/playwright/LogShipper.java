@@ -0,0 +1,178 @@
+package io.percy.playwright;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Package-private asynchronous appender that ships SDK log lines to the Percy CLI.
+ *
+ * <p>{@link #enqueue(String, String)} only appends to a bounded ring buffer and returns,
+ * so a slow or missing CLI never stalls the test thread. A single daemon thread drains
+ * the buffer in batches; consecutive lines of the same level are joined into one
+ * request. When the buffer is full the oldest line is dropped.</p>
+ */
+class LogShipper {
+    static class Entry {
+        final String message;
+        final String level;
+
+        Entry(String message, String level) {
+            this.message = message;
+            this.level = level;
+        }
+    }
+
+    private final BiConsumer<String, String> sender;
+    private final int capacity;
+    private final int batchSize;
+    private final ArrayDeque<Entry> buffer;
+
+    // Guarded by `this`
+    private int dropped = 0;
+    private boolean shipping = false;
+    private Thread worker;
+
+    /**
+     * @param sender    Delivers one (message, level) pair to the CLI.
+     * @param capacity  Maximum number of buffered lines before the oldest is dropped.
+     * @param batchSize Maximum number of lines taken off the buffer per drain.
+     */
+    LogShipper(BiConsumer<String, String> sender, int capacity, int batchSize) {
+        this.sender = sender;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.buffer = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Buffers a line for shipping, dropping the oldest buffered line when full.
+     */
+    synchronized void enqueue(String message, String level) {
+        if (buffer.size() >= capacity) {
+            buffer.pollFirst();
+            dropped++;
+        }
+        buffer.addLast(new Entry(message, level));
+        startWorker();
+        notifyAll();
+    }
+
+    /**
+     * Waits until every buffered line has been handed to the sender.
+     *
+     * @return {@code true} if the buffer drained within the timeout.
+     */
+    synchronized boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!buffer.isEmpty() || shipping) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) { return false; }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flushes before the JVM exits and describes the lines the CLI never received:
+     * those dropped because the buffer was full and those still buffered when the
+     * timeout ran out.
+     *
+     * @return The report to print, or {@code null} when every line was shipped.
+     */
+    String flushOnExit(long timeout, TimeUnit unit) {
+        flush(timeout, unit);
+        int unsent;
+        int lost;
+        synchronized (this) {
+            unsent = buffer.size();
+            lost = dropped;
+        }
+        if (unsent == 0 && lost == 0) { return null; }
+        StringBuilder report = new StringBuilder("Log lines not sent to the CLI:");
+        if (lost > 0) {
+            report.append(' ').append(lost).append(" dropped (raise PERCY_LOG_BUFFER_SIZE to keep more)");
+        }
+        if (unsent > 0) {
+            report.append(lost > 0 ? "," : "").append(' ').append(unsent).append(" still buffered at exit");
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return Number of lines dropped because the buffer was full.
+     */
+    synchronized int droppedCount() {
+        return dropped;
+    }
+
+    private void startWorker() {
+        if (worker != null) { return; }
+        worker = new Thread(this::drainLoop, "percy-log-shipper");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void drainLoop() {
+        while (true) {
+            List<Entry> batch = new ArrayList<>(batchSize);
+            synchronized (this) {
+                while (buffer.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                while (batch.size() < batchSize && !buffer.isEmpty()) {
+                    batch.add(buffer.pollFirst());
+                }
+                shipping = true;
+            }
+
+            try {
+                for (Entry entry : coalesce(batch)) {
+                    sender.accept(entry.message, entry.level);
+                }
+            } catch (RuntimeException e) {
+                // The sender reports its own failures; keep draining
+            } finally {
+                synchronized (this) {
+                    shipping = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Joins consecutive entries of the same level into a single multi-line entry.
+     */
+    static List<Entry> coalesce(List<Entry> batch) {
+        List<Entry> result = new ArrayList<>();
+        StringBuilder message = null;
+        String level = null;
+        for (Entry entry : batch) {
+            if (message != null && entry.level.equals(level)) {
+                message.append('\n').append(entry.message);
+                continue;
+            }
+            if (message != null) {
+                result.add(new Entry(message.toString(), level));
+            }
+            message = new StringBuilder(entry.message);
+            level = entry.level;
+        }
+        if (message != null) {
+            result.add(new Entry(message.toString(), level));
+        }
+        return result;
+    }
+}
@@ -2,18 +2,39 @@ package io.percy.playwright;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.microsoft.playwright.Browser;
 import com.microsoft.playwright.BrowserContext;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.impl.PageImpl;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 
 public class PageMetadata extends Exception {
+    // Getter for the `guid` field that Playwright's ChannelOwner declares, resolved once
+    // per channel-owner class instead of by reflection on every lookup
+    private static final ClassValue<MethodHandle> GUID_GETTERS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                Field field = type.getSuperclass().getDeclaredField("guid");
+                field.setAccessible(true);
+                return MethodHandles.lookup().unreflectGetter(field);
+            } catch (Exception e) {
+                // Not cached: ClassValue only keeps values that were returned
+                throw new IllegalStateException("No guid field on " + type.getName(), e);
+            }
+        }
+    };
+
+    // Thread-safe and reusable, unlike a fresh ObjectMapper per lookup
+    private static final ObjectReader SESSION_DETAILS_READER =
+            new ObjectMapper().readerFor(new TypeReference<HashMap<String, Object>>() {});
+
     private  Page page;
 
     private String pageGuid = null;
@@ -75,9 +96,7 @@ public class PageMetadata extends Exception {
         try {
             if (this.pageGuid != null) return this.pageGuid;
             Object pageImpl = resolvePageChannelOwner();
-            Field pageField = pageImpl.getClass().getSuperclass().getDeclaredField("guid");
-            pageField.setAccessible(true);
-            this.pageGuid = (String) pageField.get(pageImpl);
+            this.pageGuid = readGuid(pageImpl.getClass(), pageImpl);
         } catch (Exception err) {
             Percy.log("Failed to fetch PageGuid, error: " + err.getMessage());
             throw new Exception("Failed to fetch PageGuid");
@@ -92,9 +111,7 @@ public class PageMetadata extends Exception {
         try {
             if (this.frameGuid != null) return this.frameGuid;
             Object frameOwner = resolveFrameChannelOwner();
-            Field frameField = frameOwner.getClass().getSuperclass().getDeclaredField("guid");
-            frameField.setAccessible(true);
-            this.frameGuid = (String) frameField.get(frameOwner);
+            this.frameGuid = readGuid(frameOwner.getClass(), frameOwner);
         } catch (Exception err) {
             Percy.log("Failed to fetch FrameGuid, error: " + err.getMessage());
             throw new Exception("Failed to fetch FrameGuid");
@@ -103,15 +120,13 @@ public class PageMetadata extends Exception {
     }
 
     /**
-     * Get Playwright Browser Guid
+     * Get Playwright Browser Guid, which keys the cached session details
      */
     public String getBrowserGuid() throws Exception {
         try {
             if (this.browserGuid != null) return this.browserGuid;
             Object browserFromContext = resolveBrowserChannelOwner();
-            Field browserField = browserFromContext.getClass().getSuperclass().getDeclaredField("guid");
-            browserField.setAccessible(true);
-            this.browserGuid = (String) browserField.get(resolveFrameChannelOwner());
+            this.browserGuid = readGuid(browserFromContext.getClass(), browserFromContext);
         } catch (Exception err) {
             Percy.log("Failed to fetch BrowserGuid, error: " + err.getMessage());
             throw new Exception("Failed to fetch BrowserGuid");
@@ -121,23 +136,45 @@ public class PageMetadata extends Exception {
 
     /**
      * Get Browserstack Automate Session Details
+     *
+     * <p>Cached per browser; concurrent callers for the same browser share one
+     * {@code browserstack_executor} round trip.</p>
      */
+    @SuppressWarnings("unchecked")
     public Map<String, Object> getSessionDetails() throws Exception {
         String key = "sessionDetails_" + this.getBrowserGuid();
         try {
-            if (Cache.CACHE_MAP.get(key) == null) {
-                Object sessionDetailResponse = this.page.evaluate("_ => {}", "browserstack_executor: {\"action\": \"getSessionDetails\"}");
-                JsonObject sessionDetail = JsonParser.parseString((String) sessionDetailResponse).getAsJsonObject();
-                ObjectMapper objectMapper = new ObjectMapper();
-                this.sessionDetails = objectMapper.readValue(sessionDetail.toString(), new TypeReference<HashMap<String, Object>>() {});
-                Cache.CACHE_MAP.put(key, this.sessionDetails);
-            }
+            this.sessionDetails = (Map<String, Object>) Cache.getOrCompute(key, this::fetchSessionDetails);
         }
         catch (Exception err) {
             Percy.log("Failed to fetch SessionCapabilities, error: " + err.getMessage());
             throw new Exception("Failed to fetch SessionCapabilities");
         }
-        return (Map<String, Object>) Cache.CACHE_MAP.get(key);
+        return this.sessionDetails;
+    }
+
+    private Map<String, Object> fetchSessionDetails() throws Exception {
+        Object sessionDetailResponse = this.page.evaluate("_ => {}", "browserstack_executor: {\"action\": \"getSessionDetails\"}");
+        return SESSION_DETAILS_READER.readValue((String) sessionDetailResponse);
+    }
+
+    /**
+     * Reads the {@code guid} field declared by {@code ownerType}'s superclass from
+     * {@code instance}.
+     */
+    static String readGuid(Class<?> ownerType, Object instance) throws Exception {
+        MethodHandle getter = GUID_GETTERS.get(ownerType);
+        try {
+            return (String) getter.invoke(instance);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new Exception(t);
+        }
+    }
+
+    static MethodHandle guidGetter(Class<?> ownerType) {
+        return GUID_GETTERS.get(ownerType);
     }
 
     /**
@@ -1,26 +1,30 @@
 package io.percy.playwright;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.util.EntityUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.microsoft.playwright.*;
 import com.microsoft.playwright.options.Cookie;
+import com.microsoft.playwright.options.LoadState;
 import com.microsoft.playwright.options.ViewportSize;
+import com.microsoft.playwright.options.WaitUntilState;
 
 
 /**
@@ -30,47 +34,157 @@ public class Percy {
     // Playwright Page Object
     private Page page;
 
-    // The JavaScript contained in dom.js
-    private String domJs = "";
-
     // Maybe get the CLI server address
     private static String PERCY_SERVER_ADDRESS = System.getenv().getOrDefault("PERCY_SERVER_ADDRESS", "http://localhost:5338");
 
-    // Determine if we're debug logging
+    // Determine if we're debug logging; same variable name as the Percy CLI
     private static boolean PERCY_DEBUG = System.getenv().getOrDefault("PERCY_LOGLEVEL", "info").equals("debug");
 
-    // Optional sleep between responsive captures (seconds)
+    // Optional sleep between responsive captures (seconds, fractions allowed)
     private static String RESPONSIVE_CAPTURE_SLEEP_TIME = System.getenv().getOrDefault("RESPONSIVE_CAPTURE_SLEEP_TIME", "");
 
     // Whether to reload the page between responsive captures
     private static boolean PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE =
             "true".equalsIgnoreCase(System.getenv("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE"));
 
+    // Whether per-width reloads are served from responses recorded on the first reload
+    private static boolean PERCY_RESPONSIVE_CAPTURE_CACHE =
+            "true".equalsIgnoreCase(System.getenv("PERCY_RESPONSIVE_CAPTURE_CACHE"));
+
+    // Upper bound (MB) of response bodies kept by the reload cache
+    private static int PERCY_RESPONSIVE_CAPTURE_CACHE_MAX_MB =
+            Environment.getIntEnv("PERCY_RESPONSIVE_CAPTURE_CACHE_MAX_MB", 100);
+
+    // Number of sibling pages used to capture responsive widths concurrently (1 = resize the user's page)
+    private static int PERCY_RESPONSIVE_CAPTURE_PAGES =
+            Environment.getIntEnv("PERCY_RESPONSIVE_CAPTURE_PAGES", 1);
+
+    // Whether responsive capture waits for a push-based resize settle signal instead of polling
+    private static boolean PERCY_RESIZE_SETTLE =
+            "true".equalsIgnoreCase(System.getenv("PERCY_RESIZE_SETTLE"));
+
+    // Animation frames the layout must stay unchanged before a resize counts as settled
+    private static int PERCY_RESIZE_SETTLE_FRAMES = Environment.getIntEnv("PERCY_RESIZE_SETTLE_FRAMES", 2);
+
+    // Upper bound (ms) for a single resize settle wait; the effective timeout adapts below it
+    private static int PERCY_RESIZE_SETTLE_TIMEOUT = Environment.getIntEnv("PERCY_RESIZE_SETTLE_TIMEOUT", 5000);
+
+    // Whether responsive widths between the same media-query breakpoints share one capture once
+    // DOM fingerprints show the page renders the same at both ends; scripts can still defeat it
+    private static boolean PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS =
+            "true".equalsIgnoreCase(System.getenv("PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS"));
+
+    // Whether responsive capture reuses the previous width's DOM when an in-page fingerprint is unchanged
+    private static boolean PERCY_RESPONSIVE_CAPTURE_FINGERPRINT =
+            "true".equalsIgnoreCase(System.getenv("PERCY_RESPONSIVE_CAPTURE_FINGERPRINT"));
+
+    // What to do with a snapshot identical to one already posted under its name: upload, warn or skip
+    private static String PERCY_DUPLICATE_SNAPSHOTS =
+            System.getenv().getOrDefault("PERCY_DUPLICATE_SNAPSHOTS", DuplicateSnapshots.UPLOAD);
+
     // Whether to adjust the default height to account for browser chrome during responsive capture
     private static boolean PERCY_RESPONSIVE_CAPTURE_MIN_HEIGHT =
             "true".equalsIgnoreCase(System.getenv("PERCY_RESPONSIVE_CAPTURE_MIN_HEIGHT"));
 
+    // Whether to register dom.js once per browser context instead of evaluating it per snapshot
+    private static boolean PERCY_DOM_INIT_SCRIPT =
+            "true".equalsIgnoreCase(System.getenv("PERCY_DOM_INIT_SCRIPT"));
+
+    // Whether to run readiness, serialize and iframe mapping in a single page.evaluate
+    private static boolean PERCY_FUSED_CAPTURE =
+            "true".equalsIgnoreCase(System.getenv("PERCY_FUSED_CAPTURE"));
+
+    // Whether to look up Automate session details when the Percy instance is created (opt-in)
+    private static boolean PERCY_AUTOMATE_PREFETCH =
+            "true".equalsIgnoreCase(System.getenv("PERCY_AUTOMATE_PREFETCH"));
+
+    // Snapshots taking at least this many milliseconds have their timing breakdown logged; 0 disables
+    private static int PERCY_SLOW_SNAPSHOT_MS = Environment.getIntEnv("PERCY_SLOW_SNAPSHOT_MS", 0);
+
     // for logging
     private static String LABEL = "[\u001b[35m" + (PERCY_DEBUG ? "percy:java" : "percy") + "\u001b[39m]";
 
+    // Ships log lines to the CLI in the background so logging never blocks a test
+    private static final LogShipper LOG_SHIPPER = createLogShipper();
+
+    // Readiness, serialize and cross-origin iframe mapping in one round trip. The mapping
+    // runs after serialize, which is what assigns data-percy-element-id. Readiness is
+    // skipped, as in waitForReady, when the injected dom.js predates it.
+    static final String FUSED_CAPTURE_JS =
+            "async ({ readiness, options, frameUrls }) => {"
+            + "  let diagnostics = null;"
+            + "  if (readiness && typeof PercyDOM !== 'undefined' && typeof PercyDOM.waitForReady === 'function') {"
+            + "    try { diagnostics = await PercyDOM.waitForReady(readiness); } catch (e) { diagnostics = null; }"
+            + "  }"
+            + "  const dom = await PercyDOM.serialize(options);"
+            + "  const iframes = Array.from(document.querySelectorAll('iframe'));"
+            + "  const frames = {};"
+            + "  for (const url of frameUrls) {"
+            + "    const match = iframes.find(f => f.src.startsWith(url));"
+            + "    frames[url] = match ? match.getAttribute('data-percy-element-id') : null;"
+            + "  }"
+            + "  return { dom, readiness: diagnostics, frames };"
+            + "}";
+
     // Type of session automate/web
     protected String sessionType = null;
 
     // CLI config returned by healthcheck
     JSONObject cliConfig = new JSONObject();
 
+    // Whether the CLI accepts gzip-compressed request bodies (advertised by healthcheck);
+    // cleared from upload threads when the CLI refuses one
+    volatile boolean cliAcceptsGzip = false;
+
+    // Whether the CLI accepts deduplicated responsive payloads (advertised by healthcheck)
+    boolean cliAcceptsResourceRefs = false;
+
+    // Percy CLI core version reported by healthcheck; keys the shared dom.js cache
+    private String coreVersion = null;
+
     // Is the Percy server running or not
     private boolean isPercyEnabled = healthcheck();
 
     // PageMetadata instance
     private PageMetadata pageMetadata = null;
 
+    // Cross-origin iframe snapshots shared between the widths of a responsive capture
+    private FrameSnapshotCache frameSnapshots = null;
+
+    // Phase timer of the snapshot being captured on this instance
+    private SnapshotTimer timer = SnapshotTimer.NOOP;
+
     // Environment information like Java, browser, & SDK versions
     private Environment env;
 
     public Percy(Page page) {
         this.page = page;
         this.env = new Environment();
+        if (isPercyEnabled && PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS) {
+            recordMediaQueries();
+        }
+        if (isPercyEnabled && PERCY_AUTOMATE_PREFETCH && "automate".equals(sessionType)) {
+            prefetchSessionDetails();
+        }
+    }
+
+    /**
+     * Resolves the page's guids and Automate session details while the instance is
+     * built instead of in the first {@link #screenshot(String, Map)}.
+     *
+     * <p>Off unless {@code PERCY_AUTOMATE_PREFETCH=true}. This does not save the
+     * {@code browserstack_executor} round trip: Playwright objects may only be used from
+     * the thread that created them, so it runs on the constructing thread and every
+     * Automate {@code new Percy(page)} pays for it, screenshot or not. It only moves the
+     * cost into construction, for example into test setup.</p>
+     */
+    private void prefetchSessionDetails() {
+        try {
+            ensurePageMetadata();
+            pageMetadata.getSessionDetails();
+        } catch (Exception e) {
+            log(() -> "Could not prefetch Automate session details: " + e.getMessage(), "debug");
+        }
     }
 
     /**
@@ -312,19 +426,114 @@ public class Percy {
      */
     public JSONObject snapshot(String name, Map<String, Object> options) {
         if (!isPercyEnabled) { return null; }
+
+        SnapshotTimer snapshotTimer = new SnapshotTimer();
+        Object domSnapshot = captureSnapshot(options, snapshotTimer);
+        if (domSnapshot == null) {
+            publishMetrics(snapshotTimer.finish(name, SnapshotMetrics.Outcome.FAILED));
+            return null;
+        }
+
+        return postSnapshot(domSnapshot, name, page.url(), options, snapshotTimer);
+    }
+
+    /**
+     * Take a snapshot and upload it to Percy in the background.
+     *
+     * @param name      The human-readable name of the snapshot. Should be unique.
+     * @see #snapshotAsync(String, Map)
+     */
+    public CompletableFuture<JSONObject> snapshotAsync(String name) {
+        return snapshotAsync(name, new HashMap<String, Object>());
+    }
+
+    /**
+     * Take a snapshot and upload it to Percy in the background.
+     *
+     * The DOM is captured on the calling thread before this method returns, so the page
+     * can be changed right away. Only the POST to the Percy CLI is queued; while the
+     * upload queue is full this method blocks until an earlier upload finishes.
+     * Call {@link #flushSnapshots(long, TimeUnit)} before tearing down to wait for
+     * outstanding uploads.
+     *
+     * @param name      The human-readable name of the snapshot. Should be unique.
+     * @param options   Extra options
+     * @return A future completed with the same value {@link #snapshot(String, Map)} returns.
+     */
+    public CompletableFuture<JSONObject> snapshotAsync(String name, Map<String, Object> options) {
+        if (!isPercyEnabled) { return CompletableFuture.completedFuture(null); }
+
+        SnapshotTimer snapshotTimer = new SnapshotTimer();
+        Object domSnapshot = captureSnapshot(options, snapshotTimer);
+        if (domSnapshot == null) {
+            publishMetrics(snapshotTimer.finish(name, SnapshotMetrics.Outcome.FAILED));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String url = page.url();
+        Map<String, Object> uploadOptions = new HashMap<String, Object>(options);
+        return SnapshotUploader.shared().submit(
+                () -> postSnapshot(domSnapshot, name, url, uploadOptions, snapshotTimer));
+    }
+
+    /**
+     * Registers a listener that receives the timing breakdown, payload size and outcome
+     * of every snapshot taken from now on, by any {@code Percy} instance.
+     *
+     * @param listener  The listener to add.
+     */
+    public static void addSnapshotListener(SnapshotListener listener) {
+        SnapshotListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addSnapshotListener(SnapshotListener)}.
+     *
+     * @param listener  The listener to remove.
+     */
+    public static void removeSnapshotListener(SnapshotListener listener) {
+        SnapshotListeners.remove(listener);
+    }
+
+    /**
+     * Waits for snapshots queued by {@link #snapshotAsync(String, Map)} to finish uploading.
+     *
+     * @param timeout   The maximum time to wait.
+     * @param unit      The unit of {@code timeout}.
+     * @return {@code true} if every queued upload finished within the timeout.
+     */
+    public static boolean flushSnapshots(long timeout, TimeUnit unit) {
+        return SnapshotUploader.shared().flush(timeout, unit);
+    }
+
+    /**
+     * Captures the DOM (responsive or single-width) on the calling thread.
+     *
+     * @param snapshotTimer Receives the time spent in each capture phase.
+     * @return The DOM snapshot to post, or {@code null} if capture failed.
+     */
+    private Object captureSnapshot(Map<String, Object> options, SnapshotTimer snapshotTimer) {
         if ("automate".equals(sessionType)) { throw new RuntimeException("Invalid function call - snapshot(). Please use screenshot() function while using Percy with Automate. For more information on usage of PercyScreenshot, refer https://www.browserstack.com/docs/percy/integrate/functional-and-visual"); }
 
         Object domSnapshot = null;
+        timer = snapshotTimer;
         try {
+            long started = timer.start();
             String percyDomScript = fetchPercyDOM();
-            page.evaluate(percyDomScript);
+            timer.record(SnapshotMetrics.DOM_FETCH, started);
+
+            started = timer.start();
+            injectPercyDOM(percyDomScript);
+            timer.record(SnapshotMetrics.INJECT, started);
 
+            started = timer.start();
             List<Cookie> cookies = new ArrayList<>();
             try {
                 cookies = page.context().cookies();
             } catch (Exception e) {
-                log("Cookie collection failed: " + e.getMessage(), "debug");
+                log(() -> "Cookie collection failed: " + e.getMessage(), "debug");
             }
+            timer.record(SnapshotMetrics.COOKIES, started);
 
             if (isCaptureResponsiveDOM(options)) {
                 domSnapshot = captureResponsiveDom(cookies, percyDomScript, options);
@@ -334,10 +543,13 @@ public class Percy {
         } catch (Exception e) {
             log("Snapshot capture failed: " + e.getMessage());
             log(e.getMessage(), "debug");
+            snapshotTimer.error("Snapshot capture failed: " + e.getMessage());
             return null;
+        } finally {
+            timer = SnapshotTimer.NOOP;
         }
 
-        return postSnapshot(domSnapshot, name, page.url(), options);
+        return domSnapshot;
     }
 
     /**
@@ -381,27 +593,71 @@ public class Percy {
      * @param name        The human-readable name of the snapshot. Should be unique.
      * @param url         The url of current website
      * @param options     Map of various options support in percySnapshot Command.
+     * @param snapshotTimer Receives the payload and POST times; its metrics are published
+     *                    once the outcome is known.
      */
     private JSONObject postSnapshot(
             Object domSnapshot,
             String name,
             String url,
-            Map<String, Object> options
+            Map<String, Object> options,
+            SnapshotTimer snapshotTimer
     ) {
         if (!isPercyEnabled) { return null; }
 
-        // Build a JSON object to POST back to the agent node process
-        JSONObject json = new JSONObject(options);
+        long started = snapshotTimer.start();
+        snapshotTimer.widths((domSnapshot instanceof List) ? ((List<?>) domSnapshot).size() : 1);
+
+        // Build the payload to POST back to the agent node process. It is streamed into
+        // the request body as it is sent, so the DOM is never rendered to one big String.
+        Map<String, Object> payload = new LinkedHashMap<>(options);
         // `readiness` is SDK-local — the CLI already has it via healthcheck.
         // Strip before posting to avoid round-trip and stay forward-compatible
         // with future CLI-side validators.
-        json.remove("readiness");
-        json.put("url", url);
-        json.put("name", name);
-        json.put("domSnapshot", domSnapshot);
-        json.put("clientInfo", env.getClientInfo());
-        json.put("environmentInfo", env.getEnvironmentInfo());
-        return request("/percy/snapshot", json, name);
+        payload.remove("readiness");
+        payload.put("url", url);
+        payload.put("name", name);
+        payload.put("domSnapshot", domSnapshot);
+        String contentHash = null;
+        if (DuplicateSnapshots.isTracking(PERCY_DUPLICATE_SNAPSHOTS)) {
+            contentHash = DuplicateSnapshots.fingerprint(payload);
+        }
+        if (contentHash != null
+                && DuplicateSnapshots.check(name, contentHash) == DuplicateSnapshots.Outcome.DUPLICATE) {
+            if (DuplicateSnapshots.SKIP.equalsIgnoreCase(PERCY_DUPLICATE_SNAPSHOTS)) {
+                log("Skipping snapshot \"" + name + "\": identical to one already taken in this run");
+                snapshotTimer.record(SnapshotMetrics.PAYLOAD, started);
+                publishMetrics(snapshotTimer.finish(name, SnapshotMetrics.Outcome.SKIPPED));
+                return null;
+            }
+            log("Snapshot \"" + name + "\" is identical to one already taken in this run");
+        }
+        payload.put("clientInfo", env.getClientInfo());
+        payload.put("environmentInfo", env.getEnvironmentInfo());
+        if (cliAcceptsResourceRefs && ResourceDedup.apply(payload)) {
+            log("Sending responsive snapshot with shared resources", "debug");
+        }
+        snapshotTimer.record(SnapshotMetrics.PAYLOAD, started);
+
+        JSONObject result = post("/percy/snapshot", payload, name, snapshotTimer);
+        // Only an accepted upload counts, so a failed one can be retried as-is
+        if (result != null && contentHash != null) {
+            DuplicateSnapshots.record(name, contentHash);
+        }
+        publishMetrics(snapshotTimer.finish(name,
+                (result != null) ? SnapshotMetrics.Outcome.UPLOADED : SnapshotMetrics.Outcome.FAILED));
+        return result;
+    }
+
+    /**
+     * Hands a finished snapshot's metrics to the registered listeners, logging the
+     * breakdown when the snapshot took at least {@code PERCY_SLOW_SNAPSHOT_MS}.
+     */
+    private void publishMetrics(SnapshotMetrics metrics) {
+        if (PERCY_SLOW_SNAPSHOT_MS > 0 && metrics.getTotalMillis() >= PERCY_SLOW_SNAPSHOT_MS) {
+            log("Slow snapshot " + metrics);
+        }
+        SnapshotListeners.publish(metrics);
     }
 
     /**
@@ -412,26 +668,60 @@ public class Percy {
      * @param json        Json object of all properties.
      */
     protected JSONObject request(String url, JSONObject json, String name) {
-        StringEntity entity = new StringEntity(json.toString(), ContentType.APPLICATION_JSON);
-
-        int timeout = 600000; // 600 seconds
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setSocketTimeout(timeout)
-                .setConnectTimeout(timeout)
-                .build();
-
-        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build()) {
-            HttpPost request = new HttpPost(PERCY_SERVER_ADDRESS + url);
-            request.setEntity(entity);
-            HttpResponse response = httpClient.execute(request);
+        return post(url, json, name);
+    }
+
+    /**
+     * POST a payload to the Percy Agent node process, serializing it straight into the
+     * request body.
+     *
+     * @param payload     A {@code Map}, {@code JSONObject} or anything else
+     *                    {@link JsonStreamEntity} can write.
+     */
+    private JSONObject post(String url, Object payload, String name) {
+        return post(url, payload, name, SnapshotTimer.NOOP);
+    }
+
+    /**
+     * Same as {@link #post(String, Object, String)}, recording the request time and body
+     * size on {@code postTimer}.
+     */
+    private JSONObject post(String url, Object payload, String name, SnapshotTimer postTimer) {
+        JsonStreamEntity body = new JsonStreamEntity(payload);
+        HttpEntity entity = RequestCompression.jsonEntity(body, payload, cliAcceptsGzip);
+
+        HttpPost request = new HttpPost(PERCY_SERVER_ADDRESS + url);
+        request.setConfig(HttpTransport.SNAPSHOT_CONFIG);
+        request.setEntity(entity);
+
+        long started = postTimer.start();
+        boolean resent = false;
+        try (CloseableHttpResponse response = HttpTransport.client().execute(request)) {
+            if (response.getStatusLine().getStatusCode() == 415 && RequestCompression.isCompressed(entity)) {
+                // The CLI refused the compressed body; stop compressing and resend as-is
+                EntityUtils.consume(response.getEntity());
+                cliAcceptsGzip = false;
+                CliCache.rejectGzip(PERCY_SERVER_ADDRESS);
+                resent = true;
+                postTimer.record(SnapshotMetrics.POST, started);
+                return post(url, payload, name, postTimer);
+            }
             JSONObject jsonResponse = new JSONObject(EntityUtils.toString(response.getEntity()));
 
             if (jsonResponse.has("data")) {
                 return jsonResponse.getJSONObject("data");
             }
+            postTimer.error("Percy CLI responded with status " + response.getStatusLine().getStatusCode());
         } catch (Exception ex) {
             log(ex.toString(), "debug");
             log("Could not post snapshot " + name);
+            postTimer.error("Could not post snapshot: " + ex.getMessage());
+        } finally {
+            // A resent request records its own time and size
+            if (!resent) {
+                postTimer.record(SnapshotMetrics.POST, started);
+                postTimer.payloadBytes(body.bytesWritten());
+            }
         }
         return null;
     }
@@ -461,6 +751,10 @@ public class Percy {
      * @return Readiness diagnostics to attach to the domSnapshot, or null.
      */
     protected Object waitForReady(Map<String, Object> options) {
+        return waitForReady(page, options);
+    }
+
+    private Object waitForReady(Page target, Map<String, Object> options) {
         JSONObject readinessConfig = resolveReadinessConfig(options);
         if ("disabled".equals(readinessConfig.optString("preset", null))) {
             return null;
@@ -472,9 +766,9 @@ public class Percy {
                 + "    return PercyDOM.waitForReady(cfg);"
                 + "  }"
                 + "}";
-            return page.evaluate(js, readinessConfig.toMap());
+            return target.evaluate(js, readinessConfig.toMap());
         } catch (Exception e) {
-            log("waitForReady failed, proceeding to serialize: " + e.getMessage(), "debug");
+            log(() -> "waitForReady failed, proceeding to serialize: " + e.getMessage(), "debug");
             return null;
         }
     }
@@ -504,34 +798,71 @@ public class Percy {
     }
 
     /**
-     * Attempts to load dom.js from the local Percy server. Use cached value in `domJs`,
-     * if it exists.
+     * Attempts to load dom.js from the local Percy server. The script is cached once per
+     * JVM (and optionally on disk, see {@link DomScriptCache}) for the CLI's core version.
      *
      * This JavaScript is critical for capturing snapshots. It serializes and captures
      * the DOM. Without it, snapshots cannot be captured.
      */
     private String fetchPercyDOM() {
-        if (!domJs.trim().isEmpty()) { return domJs; }
+        try {
+            return DomScriptCache.shared().get(PERCY_SERVER_ADDRESS, coreVersion, this::downloadPercyDOM);
+        } catch (Exception ex) {
+            isPercyEnabled = false;
+            if (PERCY_DEBUG) { log(ex.toString()); }
+
+            return "";
+        }
+    }
+
+    /**
+     * GET /percy/dom.js, conditionally when {@code etag} is given.
+     */
+    private DomScriptCache.Download downloadPercyDOM(String etag) throws Exception {
+        HttpGet httpget = new HttpGet(PERCY_SERVER_ADDRESS + "/percy/dom.js");
+        httpget.setConfig(HttpTransport.DEFAULT_CONFIG);
+        if (etag != null) {
+            httpget.setHeader("If-None-Match", etag);
+        }
 
-        try (CloseableHttpClient httpClient = HttpClientBuilder.create().build()) {
-            HttpGet httpget = new HttpGet(PERCY_SERVER_ADDRESS + "/percy/dom.js");
-            HttpResponse response = httpClient.execute(httpget);
+        try (CloseableHttpResponse response = HttpTransport.client().execute(httpget)) {
             int statusCode = response.getStatusLine().getStatusCode();
 
+            if (statusCode == 304 && etag != null) {
+                EntityUtils.consume(response.getEntity());
+                return DomScriptCache.Download.NOT_MODIFIED;
+            }
             if (statusCode != 200){
                 throw new RuntimeException("Failed with HTTP error code: " + statusCode);
             }
             HttpEntity httpEntity = response.getEntity();
             String domString = EntityUtils.toString(httpEntity);
-            domJs = domString;
+            Header etagHeader = response.getFirstHeader("ETag");
 
-            return domString;
-        } catch (Exception ex) {
-            isPercyEnabled = false;
-            if (PERCY_DEBUG) { log(ex.toString()); }
+            return new DomScriptCache.Download(domString, etagHeader == null ? null : etagHeader.getValue());
+        }
+    }
 
-            return "";
+    /**
+     * Loads PercyDOM into the page. With {@code PERCY_DOM_INIT_SCRIPT=true}, dom.js is
+     * registered once per browser context and only evaluated again when the page's copy
+     * is missing or stale.
+     */
+    private void injectPercyDOM(String percyDomScript) {
+        injectPercyDOM(page, percyDomScript);
+    }
+
+    private void injectPercyDOM(Page target, String percyDomScript) {
+        if (!PERCY_DOM_INIT_SCRIPT) {
+            target.evaluate(percyDomScript);
+            return;
         }
+        try {
+            PercyDomInjector.register(target.context(), percyDomScript);
+        } catch (Exception e) {
+            log(() -> "Could not register PercyDOM init script: " + e.getMessage(), "debug");
+        }
+        PercyDomInjector.ensureLoaded(target, percyDomScript);
     }
 
     /**
@@ -547,14 +878,31 @@ public class Percy {
 
     /**
      * Checks to make sure the local Percy server is running. If not, disable Percy.
+     *
+     * <p>The answer is memoized per JVM (see {@link #clearCliCache()}), so only the first
+     * {@code Percy} instance pays for the round trip.</p>
      */
     private boolean healthcheck() {
-        try (CloseableHttpClient httpClient = HttpClientBuilder.create().build()) {
-            //Creating a HttpGet object
-            HttpGet httpget = new HttpGet(PERCY_SERVER_ADDRESS + "/percy/healthcheck");
+        CliCache.Healthcheck result = CliCache.healthcheck(PERCY_SERVER_ADDRESS, this::probeHealthcheck);
+        sessionType = result.sessionType;
+        JSONObject config = result.configCopy();
+        if (config != null) {
+            cliConfig = config;
+        }
+        cliAcceptsGzip = result.acceptsGzip;
+        cliAcceptsResourceRefs = result.acceptsResourceRefs;
+        coreVersion = result.coreVersion;
+
+        return result.enabled;
+    }
+
+    private CliCache.Healthcheck probeHealthcheck() {
+        //Creating a HttpGet object
+        HttpGet httpget = new HttpGet(PERCY_SERVER_ADDRESS + "/percy/healthcheck");
+        httpget.setConfig(HttpTransport.DEFAULT_CONFIG);
 
-            //Executing the Get request
-            HttpResponse response = httpClient.execute(httpget);
+        //Executing the Get request on the shared, pooled client
+        try (CloseableHttpResponse response = HttpTransport.client().execute(httpget)) {
             int statusCode = response.getStatusLine().getStatusCode();
 
             if (statusCode != 200){
@@ -570,37 +918,58 @@ public class Percy {
                         "https://www.browserstack.com/docs/percy/migration/migrate-to-cli"
                 );
 
-                return false;
+                return CliCache.Healthcheck.DISABLED;
             }
 
             if (!version.split("\\.")[0].equals("1")) {
                 log("Unsupported Percy CLI version, " + version);
 
-                return false;
+                return CliCache.Healthcheck.DISABLED;
             }
             HttpEntity entity = response.getEntity();
             String responseString = EntityUtils.toString(entity, "UTF-8");
             JSONObject responseObject = new JSONObject(responseString);
-            sessionType = (String) responseObject.optString("type", null);
-            JSONObject parsedConfig = responseObject.optJSONObject("config");
-            if (parsedConfig != null) {
-                cliConfig = parsedConfig;
-            }
 
-            return true;
+            return new CliCache.Healthcheck(
+                    true,
+                    (String) responseObject.optString("type", null),
+                    responseObject.optJSONObject("config"),
+                    RequestCompression.acceptsGzip(response),
+                    version,
+                    ResourceDedup.isSupported(response));
         } catch (Exception ex) {
             log("Percy is not running, disabling snapshots");
             log(ex.toString(), "debug");
 
-            return false;
+            return CliCache.Healthcheck.DISABLED;
         }
     }
 
+    /**
+     * Forgets the memoized healthcheck, widths-config and dom.js answers so the next
+     * {@code Percy} instance or snapshot asks the CLI again. Useful when the CLI is
+     * restarted within one JVM.
+     */
+    public static void clearCliCache() {
+        CliCache.invalidate();
+        DomScriptCache.shared().invalidate();
+    }
+
     /**
      * On Automate session updates the pageMetadata
+     *
+     * <p>The metadata is created once per instance, and so once per page, so later
+     * screenshots reuse its resolved guids and session details.</p>
      */
     protected void setPageMetadata() throws Exception{
-        this.pageMetadata = new PageMetadata(this.page);
+        ensurePageMetadata();
+    }
+
+    // Private so the constructor never runs subclass code on a half-built instance
+    private void ensurePageMetadata() {
+        if (this.pageMetadata == null) {
+            this.pageMetadata = new PageMetadata(this.page);
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -671,7 +1040,8 @@ public class Percy {
     /**
      * Fetches responsive width/height pairs from the Percy CLI {@code /percy/widths-config}
      * endpoint.  The optional {@code widths} list is forwarded as a query parameter so that
-     * the CLI can merge user-supplied widths with its own configuration.
+     * the CLI can merge user-supplied widths with its own configuration. The answer for a
+     * given widths list is memoized per JVM.
      *
      * @param widths Optional list of user-supplied widths (may be null or empty).
      * @return A list of {@code {"width": N, "height": N}} maps as returned by the CLI.
@@ -685,15 +1055,15 @@ public class Percy {
             queryParam = "?widths=" + joined;
         }
 
-        int timeout = 30000; // 30 seconds
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setSocketTimeout(timeout)
-                .setConnectTimeout(timeout)
-                .build();
+        String url = PERCY_SERVER_ADDRESS + "/percy/widths-config" + queryParam;
+        return CliCache.widths(url, () -> fetchResponsiveWidths(url));
+    }
+
+    private List<Map<String, Object>> fetchResponsiveWidths(String url) {
+        HttpGet httpget = new HttpGet(url);
+        httpget.setConfig(HttpTransport.WIDTHS_CONFIG);
 
-        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build()) {
-            HttpGet httpget = new HttpGet(PERCY_SERVER_ADDRESS + "/percy/widths-config" + queryParam);
-            HttpResponse response = httpClient.execute(httpget);
+        try (CloseableHttpResponse response = HttpTransport.client().execute(httpget)) {
             int statusCode = response.getStatusLine().getStatusCode();
 
             if (statusCode != 200) {
@@ -736,18 +1106,38 @@ public class Percy {
 
     /**
      * Resizes the page viewport to the requested dimensions and waits for the page to
-     * acknowledge the resize via the {@code window.resizeCount} counter injected by
-     * {@code PercyDOM.waitForResize()}.
+     * acknowledge the resize, either through {@code settle} or, when it is {@code null},
+     * via the {@code window.resizeCount} counter injected by {@code PercyDOM.waitForResize()}.
      *
      * @param width       Target viewport width in pixels.
      * @param height      Target viewport height in pixels.
      * @param resizeCount The expected value of {@code window.resizeCount} after resize.
+     * @param settle      Push-based settle signal for this page, or {@code null}.
+     */
+    private void changeViewportAndWait(int width, int height, int resizeCount, ResizeSettleSignal settle) {
+        long started = timer.start();
+        try {
+            waitForViewport(width, height, resizeCount, settle);
+        } finally {
+            timer.record(SnapshotMetrics.RESIZE, started);
+        }
+    }
+
+    /**
+     * Body of {@link #changeViewportAndWait}, which times it as the resize phase.
      */
-    private void changeViewportAndWait(int width, int height, int resizeCount) {
+    private void waitForViewport(int width, int height, int resizeCount, ResizeSettleSignal settle) {
         try {
             page.setViewportSize(width, height);
         } catch (Exception e) {
-            log("Resizing viewport failed for width " + width + ": " + e.getMessage(), "debug");
+            log(() -> "Resizing viewport failed for width " + width + ": " + e.getMessage(), "debug");
+        }
+
+        if (settle != null) {
+            if (!settle.await(page, resizeCount)) {
+                log(() -> "Timed out waiting for layout to settle for width " + width, "debug");
+            }
+            return;
         }
 
         try {
@@ -757,10 +1147,34 @@ public class Percy {
                     new Page.WaitForFunctionOptions().setTimeout(1000)
             );
         } catch (Exception e) {
-            log("Timed out waiting for window resize event for width " + width, "debug");
+            log(() -> "Timed out waiting for window resize event for width " + width, "debug");
         }
     }
 
+    /**
+     * Prepares the current document to acknowledge viewport resizes: arms the push-based
+     * settle signal when {@code PERCY_RESIZE_SETTLE} is enabled, otherwise installs the
+     * {@code PercyDOM.waitForResize()} counter.
+     *
+     * @param settle The signal returned by an earlier call, or {@code null}.
+     * @return The armed settle signal, or {@code null} if the counter is used instead.
+     */
+    private ResizeSettleSignal armResizeWait(ResizeSettleSignal settle) {
+        if (PERCY_RESIZE_SETTLE) {
+            try {
+                ResizeSettleSignal signal = (settle != null)
+                        ? settle
+                        : ResizeSettleSignal.forPage(page, PERCY_RESIZE_SETTLE_TIMEOUT);
+                signal.arm(page, PERCY_RESIZE_SETTLE_FRAMES);
+                return signal;
+            } catch (Exception e) {
+                log(() -> "Resize settle signal unavailable, polling instead: " + e.getMessage(), "debug");
+            }
+        }
+        page.evaluate("PercyDOM.waitForResize()");
+        return null;
+    }
+
     /**
      * Captures serialized DOM snapshots for each responsive width/height pair returned
      * by the Percy CLI.  The viewport is restored to its original size after capture.
@@ -774,6 +1188,25 @@ public class Percy {
             List<Cookie> cookies,
             String percyDomScript,
             Map<String, Object> options) {
+        FrameSnapshotCache frames = new FrameSnapshotCache();
+        frameSnapshots = frames;
+        try {
+            return captureResponsiveWidths(cookies, percyDomScript, options);
+        } finally {
+            frameSnapshots = null;
+            if (frames.hits() > 0) {
+                log(() -> "Reused " + frames.hits() + " cross-origin iframe snapshots across widths", "debug");
+            }
+        }
+    }
+
+    /**
+     * Body of {@link #captureResponsiveDom}, run while {@link #frameSnapshots} is set.
+     */
+    private List<Map<String, Object>> captureResponsiveWidths(
+            List<Cookie> cookies,
+            String percyDomScript,
+            Map<String, Object> options) {
 
         @SuppressWarnings("unchecked")
         List<Integer> userWidths = (options.get("widths") instanceof List<?>)
@@ -788,56 +1221,299 @@ public class Percy {
         int currentWidth  = (originalViewport != null) ? originalViewport.width  : 1280;
         int currentHeight = (originalViewport != null) ? originalViewport.height : 720;
         int defaultHeight = calculateDefaultHeight(currentHeight, options);
+
+        ResponsiveBreakpoints.Plan plan = planBreakpointCaptures(widthHeights, defaultHeight, currentWidth, currentHeight);
+        if (plan != null) {
+            widthHeights = plan.captures();
+        }
+
+        // Fingerprints of the plan's first captures, to check which groups may be collapsed
+        List<String> planFingerprints = (plan != null) ? new ArrayList<>() : null;
+
+        if (PERCY_RESPONSIVE_CAPTURE_PAGES > 1) {
+            domSnapshots = captureResponsiveDomOnSiblingPages(
+                    cookies, percyDomScript, options, widthHeights, defaultHeight, planFingerprints);
+            if (plan == null) { return domSnapshots; }
+            if (domSnapshots.size() == widthHeights.size()) {
+                domSnapshots.addAll(captureResponsiveDomOnSiblingPages(
+                        cookies, percyDomScript, options, plan.verify(planFingerprints), defaultHeight, null));
+            }
+            return plan.expand(domSnapshots);
+        }
+
         int lastWindowWidth = currentWidth;
         int lastWindowHeight = currentHeight;
         int resizeCount = 0;
 
-        // Inject the resize counter before iterating widths
-        page.evaluate("PercyDOM.waitForResize()");
+        // Set up resize acknowledgement before iterating widths
+        ResizeSettleSignal settle = armResizeWait(null);
 
-        for (Map<String, Object> widthHeight : widthHeights) {
-            int width  = (int) widthHeight.get("width");
-            int height = widthHeight.containsKey("height")
-                    ? (int) widthHeight.get("height")
-                    : defaultHeight;
-
-            if (lastWindowWidth != width || lastWindowHeight != height) {
-                resizeCount++;
-                changeViewportAndWait(width, height, resizeCount);
-                lastWindowWidth = width;
-                lastWindowHeight = height;
-            }
+        DomFingerprint fingerprints = PERCY_RESPONSIVE_CAPTURE_FINGERPRINT ? new DomFingerprint() : null;
+        ReloadResponseCache responseCache = installReloadResponseCache();
+        List<Map<String, Object>> toCapture = new ArrayList<>(widthHeights);
+        try {
+            for (int i = 0; i < toCapture.size(); i++) {
+                Map<String, Object> widthHeight = toCapture.get(i);
+                int width  = (int) widthHeight.get("width");
+                int height = widthHeight.containsKey("height")
+                        ? (int) widthHeight.get("height")
+                        : defaultHeight;
+
+                if (lastWindowWidth != width || lastWindowHeight != height) {
+                    resizeCount++;
+                    changeViewportAndWait(width, height, resizeCount, settle);
+                    lastWindowWidth = width;
+                    lastWindowHeight = height;
+                }
 
-            if (PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE) {
-                page.reload();
-                page.evaluate(percyDomScript);
-                page.evaluate("PercyDOM.waitForResize()");
-                resizeCount = 0;
-            }
+                if (PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE) {
+                    long started = timer.start();
+                    page.reload();
+                    injectPercyDOM(percyDomScript);
+                    settle = armResizeWait(settle);
+                    resizeCount = 0;
+                    timer.record(SnapshotMetrics.RELOAD, started);
+                }
+
+                if (!sleepBeforeResponsiveCapture()) { break; }
+
+                String fingerprint = (fingerprints != null || planFingerprints != null) ? fingerprintOf(page) : null;
+                Map<String, Object> domSnapshot =
+                        serializeForWidth(page, fingerprints, fingerprint, cookies, percyDomScript, options);
+                domSnapshot.put("width", width);
+                domSnapshots.add(domSnapshot);
 
-            if (!RESPONSIVE_CAPTURE_SLEEP_TIME.isEmpty()) {
+                if (planFingerprints != null && i < widthHeights.size()) {
+                    planFingerprints.add(fingerprint);
+                    if (i == widthHeights.size() - 1) {
+                        toCapture.addAll(plan.verify(planFingerprints));
+                    }
+                }
+            }
+        } finally {
+            if (responseCache != null) {
+                log(() -> "Served " + responseCache.hits() + " responses from the reload cache", "debug");
                 try {
-                    int sleepMs = Integer.parseInt(RESPONSIVE_CAPTURE_SLEEP_TIME) * 1000;
-                    if (sleepMs > 0) { Thread.sleep(sleepMs); }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (NumberFormatException ignored) { }
+                    responseCache.uninstall();
+                } catch (Exception e) {
+                    log(() -> "Failed to remove the reload cache route: " + e.getMessage(), "debug");
+                }
             }
-
-            Map<String, Object> domSnapshot = getSerializedDOM(cookies, percyDomScript, options);
-            domSnapshot.put("width", width);
-            domSnapshots.add(domSnapshot);
         }
 
         // Restore original viewport only if it was changed
         if (lastWindowWidth != currentWidth || lastWindowHeight != currentHeight) {
-            changeViewportAndWait(currentWidth, currentHeight, resizeCount + 1);
+            changeViewportAndWait(currentWidth, currentHeight, resizeCount + 1, settle);
+        }
+
+        return (plan != null) ? plan.expand(domSnapshots) : domSnapshots;
+    }
+
+    /**
+     * Registers the {@code window.matchMedia} recorder for documents this page loads from
+     * now on, so breakpoint-aware capture also sees queries made by scripts.
+     */
+    private void recordMediaQueries() {
+        try {
+            page.addInitScript(ResponsiveBreakpoints.RECORDER_JS);
+        } catch (Exception e) {
+            log(() -> "Failed to register media query recorder: " + e.getMessage(), "debug");
+        }
+    }
+
+    /**
+     * Plans to capture the narrowest and widest requested width of each media-query
+     * breakpoint interval when {@code PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS} is enabled and
+     * the page's breakpoints are fully known; the widths in between are captured too unless
+     * the DOM fingerprints at both ends match.
+     *
+     * @return The plan, or {@code null} to capture every width.
+     */
+    private ResponsiveBreakpoints.Plan planBreakpointCaptures(
+            List<Map<String, Object>> widthHeights, int defaultHeight, int currentWidth, int currentHeight) {
+        if (!PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS) { return null; }
+        try {
+            Object queries = page.evaluate(ResponsiveBreakpoints.COLLECT_JS);
+            if (!(queries instanceof List<?>)) {
+                log("Breakpoints unknown for this page, capturing every width", "debug");
+                return null;
+            }
+            List<String> texts = new ArrayList<>();
+            for (Object query : (List<?>) queries) {
+                texts.add(String.valueOf(query));
+            }
+            SortedSet<Integer> cuts = ResponsiveBreakpoints.cuts(texts);
+            if (cuts == null) {
+                log("Unsupported media queries on this page, capturing every width", "debug");
+                return null;
+            }
+            ResponsiveBreakpoints.Plan plan = ResponsiveBreakpoints.plan(
+                    widthHeights, defaultHeight, cuts, currentWidth, currentHeight);
+            log(() -> "Capturing " + plan.captures().size() + " of " + widthHeights.size()
+                    + " widths first (breakpoints " + cuts + ")", "debug");
+            return plan;
+        } catch (Exception e) {
+            log(() -> "Failed to read breakpoints: " + e.getMessage(), "debug");
+            return null;
+        }
+    }
+
+    /**
+     * Routes the page through an in-memory {@link ReloadResponseCache} when per-width
+     * reloads and {@code PERCY_RESPONSIVE_CAPTURE_CACHE} are both enabled.
+     *
+     * @return The installed cache, or {@code null} if none is used.
+     */
+    private ReloadResponseCache installReloadResponseCache() {
+        if (!PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE || !PERCY_RESPONSIVE_CAPTURE_CACHE) { return null; }
+        try {
+            ReloadResponseCache cache =
+                    new ReloadResponseCache(PERCY_RESPONSIVE_CAPTURE_CACHE_MAX_MB * 1024L * 1024L);
+            cache.install(page);
+            return cache;
+        } catch (Exception e) {
+            log(() -> "Reload cache unavailable, reloading from the network: " + e.getMessage(), "debug");
+            return null;
+        }
+    }
+
+    /**
+     * Captures responsive widths on sibling pages of the same {@link BrowserContext}
+     * (sharing cookies and storage) instead of resizing the user's page, whose viewport is
+     * never touched. Up to {@code PERCY_RESPONSIVE_CAPTURE_PAGES} pages are open at once:
+     * each batch starts every navigation before waiting on any, so the browser loads them
+     * concurrently, then serializes them one by one on this thread as Playwright requires.
+     *
+     * @return A list of DOM snapshot maps, each annotated with its capture {@code width},
+     *         in the order the CLI returned the widths.
+     */
+    private List<Map<String, Object>> captureResponsiveDomOnSiblingPages(
+            List<Cookie> cookies,
+            String percyDomScript,
+            Map<String, Object> options,
+            List<Map<String, Object>> widthHeights,
+            int defaultHeight,
+            List<String> planFingerprints) {
+
+        BrowserContext context = page.context();
+        String url = page.url();
+        List<Map<String, Object>> domSnapshots = new ArrayList<>();
+        DomFingerprint fingerprints = PERCY_RESPONSIVE_CAPTURE_FINGERPRINT ? new DomFingerprint() : null;
+
+        for (int start = 0; start < widthHeights.size(); start += PERCY_RESPONSIVE_CAPTURE_PAGES) {
+            List<Map<String, Object>> batch = widthHeights.subList(start,
+                    Math.min(start + PERCY_RESPONSIVE_CAPTURE_PAGES, widthHeights.size()));
+            List<Page> siblings = new ArrayList<>();
+            try {
+                for (Map<String, Object> widthHeight : batch) {
+                    int width  = (int) widthHeight.get("width");
+                    int height = widthHeight.containsKey("height")
+                            ? (int) widthHeight.get("height")
+                            : defaultHeight;
+                    Page sibling = context.newPage();
+                    siblings.add(sibling);
+                    sibling.setViewportSize(width, height);
+                    // Return once the navigation commits; loading continues in the browser
+                    sibling.navigate(url, new Page.NavigateOptions().setWaitUntil(WaitUntilState.COMMIT));
+                }
+
+                for (int i = 0; i < siblings.size(); i++) {
+                    Page sibling = siblings.get(i);
+                    sibling.waitForLoadState(LoadState.LOAD);
+                    if (i == 0 && !sleepBeforeResponsiveCapture()) { return domSnapshots; }
+                    long started = timer.start();
+                    injectPercyDOM(sibling, percyDomScript);
+                    timer.record(SnapshotMetrics.INJECT, started);
+
+                    String fingerprint = (fingerprints != null || planFingerprints != null)
+                            ? fingerprintOf(sibling) : null;
+                    Map<String, Object> domSnapshot =
+                            serializeForWidth(sibling, fingerprints, fingerprint, cookies, percyDomScript, options);
+                    domSnapshot.put("width", batch.get(i).get("width"));
+                    domSnapshots.add(domSnapshot);
+                    if (planFingerprints != null) { planFingerprints.add(fingerprint); }
+                }
+            } finally {
+                for (Page sibling : siblings) {
+                    try {
+                        sibling.close();
+                    } catch (Exception e) {
+                        log(() -> "Failed to close responsive capture page: " + e.getMessage(), "debug");
+                    }
+                }
+            }
         }
 
         return domSnapshots;
     }
 
+    /**
+     * Serializes {@code target} for one responsive width, or reuses the DOM serialized for
+     * the previous width when {@code fingerprints} is set and the document's fingerprint
+     * did not change.
+     *
+     * @param fingerprints Fingerprint state for this capture, or {@code null} to always serialize.
+     * @param fingerprint  The document's current {@link #fingerprintOf(Page) fingerprint}, if taken.
+     * @return A DOM snapshot map the caller may annotate.
+     */
+    private Map<String, Object> serializeForWidth(
+            Page target,
+            DomFingerprint fingerprints,
+            String fingerprint,
+            List<Cookie> cookies,
+            String percyDomScript,
+            Map<String, Object> options) {
+        if (fingerprints == null) {
+            return getSerializedDOM(target, cookies, percyDomScript, options);
+        }
+
+        Map<String, Object> reused = fingerprints.reuse(fingerprint);
+        if (reused != null) {
+            log("DOM unchanged since the previous width, reusing its serialization", "debug");
+            return reused;
+        }
+        Map<String, Object> domSnapshot = getSerializedDOM(target, cookies, percyDomScript, options);
+        fingerprints.remember(fingerprint, domSnapshot);
+        return domSnapshot;
+    }
+
+    /**
+     * @return The {@link DomFingerprint} of {@code target}'s document, or {@code null} if it
+     *         cannot be fingerprinted.
+     */
+    private String fingerprintOf(Page target) {
+        try {
+            Object value = target.evaluate(DomFingerprint.JS);
+            return (value instanceof String) ? (String) value : null;
+        } catch (Exception e) {
+            log(() -> "Failed to fingerprint DOM: " + e.getMessage(), "debug");
+            return null;
+        }
+    }
+
+    /**
+     * Sleeps for {@code RESPONSIVE_CAPTURE_SLEEP_TIME} seconds, if set. Fractional values
+     * such as {@code 0.2} are accepted.
+     *
+     * @return {@code false} if the thread was interrupted and capture should stop.
+     */
+    private boolean sleepBeforeResponsiveCapture() {
+        if (!RESPONSIVE_CAPTURE_SLEEP_TIME.isEmpty()) {
+            long started = timer.start();
+            try {
+                long sleepMs = (long) (Double.parseDouble(RESPONSIVE_CAPTURE_SLEEP_TIME) * 1000);
+                if (sleepMs > 0) { Thread.sleep(sleepMs); }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (NumberFormatException ignored) {
+            } finally {
+                timer.record(SnapshotMetrics.SLEEP, started);
+            }
+        }
+        return true;
+    }
+
     // -------------------------------------------------------------------------
     // Cross-origin iframe helpers
     // -------------------------------------------------------------------------
@@ -847,6 +1523,7 @@ public class Percy {
      * serializes the frame, and retrieves the matching {@code data-percy-element-id}
      * from the main page so the CLI can stitch the iframe content into the snapshot.
      *
+     * @param target         The page the frame belongs to.
      * @param frame          The cross-origin frame to process.
      * @param percyDomScript The cached percy DOM serialization script.
      * @param options        Snapshot options forwarded to the frame serializer.
@@ -855,24 +1532,14 @@ public class Percy {
      */
     @SuppressWarnings("unchecked")
     private Map<String, Object> processFrame(
+            Page target,
             Frame frame,
             String percyDomScript,
             Map<String, Object> options) {
 
         String frameUrl = frame.url();
         try {
-            // Inject Percy DOM into the cross-origin frame
-            frame.evaluate(percyDomScript);
-
-            // enableJavaScript=true prevents standard iframe serialization so we can
-            // handle cross-origin frames manually
-            Map<String, Object> frameOptions = new HashMap<>(options);
-            frameOptions.put("enableJavaScript", true);
-            JSONObject frameOptionsJson = new JSONObject(frameOptions);
-
-            Map<String, Object> iframeSnapshot =
-                    (Map<String, Object>) frame.evaluate(
-                            String.format("PercyDOM.serialize(%s)", frameOptionsJson));
+            Map<String, Object> iframeSnapshot = serializeFrameOnce(frame, percyDomScript, options);
 
             // Retrieve the matching iframe element's percy ID from the main page
             String js =
@@ -885,10 +1552,10 @@ public class Percy {
                     "}";
 
             Map<String, Object> iframeData =
-                    (Map<String, Object>) page.evaluate(js, frameUrl);
+                    (Map<String, Object>) target.evaluate(js, frameUrl);
 
             if (iframeData == null || iframeData.get("percyElementId") == null) {
-                log("Skipping cross-origin frame " + frameUrl +
+                log(() -> "Skipping cross-origin frame " + frameUrl +
                         ": no matching iframe with percyElementId found", "debug");
                 return null;
             }
@@ -900,11 +1567,82 @@ public class Percy {
             return result;
 
         } catch (Exception e) {
-            log("Failed to process cross-origin frame " + frameUrl + ": " + e.getMessage(), "debug");
+            log(() -> "Failed to process cross-origin frame " + frameUrl + ": " + e.getMessage(), "debug");
             return null;
         }
     }
 
+    /**
+     * Serializes a cross-origin frame, or during responsive capture returns the snapshot
+     * already taken of a frame with the same URL and content fingerprint.
+     */
+    private Map<String, Object> serializeFrameOnce(
+            Frame frame,
+            String percyDomScript,
+            Map<String, Object> options) {
+        FrameSnapshotCache frames = frameSnapshots;
+        if (frames == null) {
+            return serializeFrame(frame, percyDomScript, options);
+        }
+        String fingerprint = null;
+        try {
+            Object value = frame.evaluate(DomFingerprint.JS);
+            fingerprint = (value instanceof String) ? (String) value : null;
+        } catch (Exception e) {
+            log(() -> "Failed to fingerprint cross-origin frame " + frame.url() + ": " + e.getMessage(), "debug");
+        }
+        return frames.get(frame.url(), fingerprint, () -> serializeFrame(frame, percyDomScript, options));
+    }
+
+    /**
+     * Injects the Percy DOM script into a cross-origin frame and serializes it.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> serializeFrame(
+            Frame frame,
+            String percyDomScript,
+            Map<String, Object> options) {
+        // Inject Percy DOM into the cross-origin frame
+        if (PERCY_DOM_INIT_SCRIPT) {
+            PercyDomInjector.ensureLoaded(frame, percyDomScript);
+        } else {
+            frame.evaluate(percyDomScript);
+        }
+
+        // enableJavaScript=true prevents standard iframe serialization so we can
+        // handle cross-origin frames manually
+        Map<String, Object> frameOptions = new HashMap<>(options);
+        frameOptions.put("enableJavaScript", true);
+        JSONObject frameOptionsJson = new JSONObject(frameOptions);
+
+        return (Map<String, Object>) frame.evaluate(
+                String.format("PercyDOM.serialize(%s)", frameOptionsJson));
+    }
+
+    /**
+     * @return Frames of the page whose host differs from the page's own host.
+     */
+    private List<Frame> findCrossOriginFrames(Page target) throws URISyntaxException {
+        URI pageUri = new URI(target.url());
+        String pageHost = pageUri.getHost();
+
+        return target.frames().stream()
+                .filter(f -> {
+                    String fUrl = f.url();
+                    if ("about:blank".equals(fUrl) || fUrl.isEmpty()) { return false; }
+                    // If the page has no host (e.g., file:, data:), skip CORS detection
+                    if (pageHost == null) { return false; }
+                    try {
+                        String frameHost = new URI(fUrl).getHost();
+                        // Treat frames with no host as non-cross-origin
+                        return frameHost != null && !Objects.equals(frameHost, pageHost);
+                    } catch (Exception e) {
+                        return false;
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
     // -------------------------------------------------------------------------
     // DOM serialization
     // -------------------------------------------------------------------------
@@ -917,17 +1655,37 @@ public class Percy {
      * @param options        Snapshot options forwarded to the DOM serializer.
      * @return A mutable snapshot map ready for posting to the Percy CLI.
      */
-    @SuppressWarnings("unchecked")
     Map<String, Object> getSerializedDOM(
             List<Cookie> cookies,
             String percyDomScript,
             Map<String, Object> options) {
+        return getSerializedDOM(page, cookies, percyDomScript, options);
+    }
+
+    /**
+     * Same as {@link #getSerializedDOM(List, String, Map)} for another page, such as a
+     * sibling page opened for a responsive width.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getSerializedDOM(
+            Page target,
+            List<Cookie> cookies,
+            String percyDomScript,
+            Map<String, Object> options) {
+
+        if (PERCY_FUSED_CAPTURE) {
+            return getSerializedDOMFused(target, cookies, percyDomScript, options);
+        }
 
         // Readiness gate before serialize. Graceful on old CLI.
-        Object readinessDiagnostics = waitForReady(options);
+        long started = timer.start();
+        Object readinessDiagnostics = waitForReady(target, options);
+        timer.record(SnapshotMetrics.READINESS, started);
 
+        started = timer.start();
         Map<String, Object> domSnapshot =
-                (Map<String, Object>) page.evaluate(buildSnapshotJS(options));
+                (Map<String, Object>) target.evaluate(buildSnapshotJS(options));
+        timer.record(SnapshotMetrics.SERIALIZE, started);
         if (domSnapshot == null) {
             throw new RuntimeException("DOM serialization returned null — PercyDOM.serialize() may not be loaded or returned undefined");
         }
@@ -939,30 +1697,14 @@ public class Percy {
         }
 
         // Process cross-origin iframes
+        started = timer.start();
         try {
-            URI pageUri = new URI(page.url());
-            String pageHost = pageUri.getHost();
-
-            List<Frame> crossOriginFrames = page.frames().stream()
-                    .filter(f -> {
-                        String fUrl = f.url();
-                        if ("about:blank".equals(fUrl) || fUrl.isEmpty()) { return false; }
-                        // If the page has no host (e.g., file:, data:), skip CORS detection
-                        if (pageHost == null) { return false; }
-                        try {
-                            String frameHost = new URI(fUrl).getHost();
-                            // Treat frames with no host as non-cross-origin
-                            return frameHost != null && !Objects.equals(frameHost, pageHost);
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
+            List<Frame> crossOriginFrames = findCrossOriginFrames(target);
 
             if (!crossOriginFrames.isEmpty()) {
                 List<Map<String, Object>> processedFrames = new ArrayList<>();
                 for (Frame frame : crossOriginFrames) {
-                    Map<String, Object> frameResult = processFrame(frame, percyDomScript, options);
+                    Map<String, Object> frameResult = processFrame(target, frame, percyDomScript, options);
                     if (frameResult != null) {
                         processedFrames.add(frameResult);
                     }
@@ -972,10 +1714,106 @@ public class Percy {
                 }
             }
         } catch (Exception e) {
-            log("Failed to process cross-origin iframes: " + e.getMessage(), "debug");
+            log(() -> "Failed to process cross-origin iframes: " + e.getMessage(), "debug");
+        }
+        timer.record(SnapshotMetrics.FRAMES, started);
+
+        mutableSnapshot.put("cookies", serializeCookies(cookies));
+
+        return mutableSnapshot;
+    }
+
+    /**
+     * Fused variant of {@link #getSerializedDOM}: waits for readiness, serializes the page
+     * and maps every cross-origin frame URL to its {@code data-percy-element-id} in a
+     * single {@code page.evaluate}. Only frames that matched an iframe element are then
+     * serialized, one evaluate each since they live in other origins.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getSerializedDOMFused(
+            Page target,
+            List<Cookie> cookies,
+            String percyDomScript,
+            Map<String, Object> options) {
+
+        JSONObject readinessConfig = resolveReadinessConfig(options);
+        boolean readinessEnabled = !"disabled".equals(readinessConfig.optString("preset", null));
+
+        // page.frames() is answered from Playwright's local frame tree, not the browser
+        List<Frame> crossOriginFrames = new ArrayList<>();
+        try {
+            crossOriginFrames = findCrossOriginFrames(target);
+        } catch (Exception e) {
+            log(() -> "Failed to process cross-origin iframes: " + e.getMessage(), "debug");
+        }
+        List<String> frameUrls = crossOriginFrames.stream()
+                .map(Frame::url)
+                .distinct()
+                .collect(Collectors.toList());
+
+        JSONObject serializeOptions = new JSONObject(options);
+        // `readiness` is consumed by waitForReady — not a serialize arg.
+        serializeOptions.remove("readiness");
+
+        Map<String, Object> arg = new HashMap<>();
+        arg.put("readiness", readinessEnabled ? readinessConfig.toMap() : null);
+        arg.put("options", serializeOptions.toMap());
+        arg.put("frameUrls", frameUrls);
+
+        // Readiness and serialize share one evaluate, so their time is reported as serialize
+        long started = timer.start();
+        Map<String, Object> result = (Map<String, Object>) target.evaluate(FUSED_CAPTURE_JS, arg);
+        timer.record(SnapshotMetrics.SERIALIZE, started);
+        if (result == null || !(result.get("dom") instanceof Map)) {
+            throw new RuntimeException("DOM serialization returned null — PercyDOM.serialize() may not be loaded or returned undefined");
+        }
+        Map<String, Object> mutableSnapshot = new HashMap<>((Map<String, Object>) result.get("dom"));
+
+        // Attach readiness diagnostics so the CLI can log timing and pass/fail
+        if (result.get("readiness") != null) {
+            mutableSnapshot.put("readiness_diagnostics", result.get("readiness"));
+        }
+
+        Map<String, Object> elementIds = result.get("frames") instanceof Map
+                ? (Map<String, Object>) result.get("frames")
+                : new HashMap<>();
+        started = timer.start();
+        List<Map<String, Object>> processedFrames = new ArrayList<>();
+        for (Frame frame : crossOriginFrames) {
+            String frameUrl = frame.url();
+            Object percyElementId = elementIds.get(frameUrl);
+            if (percyElementId == null) {
+                log(() -> "Skipping cross-origin frame " + frameUrl +
+                        ": no matching iframe with percyElementId found", "debug");
+                continue;
+            }
+            try {
+                Map<String, Object> iframeData = new HashMap<>();
+                iframeData.put("percyElementId", percyElementId);
+
+                Map<String, Object> frameResult = new HashMap<>();
+                frameResult.put("iframeData", iframeData);
+                frameResult.put("iframeSnapshot", serializeFrameOnce(frame, percyDomScript, options));
+                frameResult.put("frameUrl", frameUrl);
+                processedFrames.add(frameResult);
+            } catch (Exception e) {
+                log(() -> "Failed to process cross-origin frame " + frameUrl + ": " + e.getMessage(), "debug");
+            }
         }
+        if (!processedFrames.isEmpty()) {
+            mutableSnapshot.put("corsIframes", processedFrames);
+        }
+        timer.record(SnapshotMetrics.FRAMES, started);
+
+        mutableSnapshot.put("cookies", serializeCookies(cookies));
 
-        // Serialize cookies as a list of plain maps
+        return mutableSnapshot;
+    }
+
+    /**
+     * Serializes cookies as a list of plain maps.
+     */
+    static List<Map<String, Object>> serializeCookies(List<Cookie> cookies) {
         List<Map<String, Object>> cookiesList = new ArrayList<>();
         for (Cookie c : cookies) {
             Map<String, Object> cookieMap = new HashMap<>();
@@ -991,9 +1829,7 @@ public class Percy {
             }
             cookiesList.add(cookieMap);
         }
-        mutableSnapshot.put("cookies", cookiesList);
-
-        return mutableSnapshot;
+        return cookiesList;
     }
 
     // -------------------------------------------------------------------------
@@ -1006,28 +1842,62 @@ public class Percy {
 
     protected static void log(String message, String level) {
         message = LABEL + " " + message;
+        // Debug lines are neither printed nor shipped unless debug mode is on
+        if (!"debug".equals(level) || PERCY_DEBUG) {
+            LOG_SHIPPER.enqueue(message, level);
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Logs a message that is only built when it will actually be printed or shipped,
+     * so debug messages cost nothing outside debug mode.
+     */
+    protected static void log(Supplier<String> message, String level) {
+        if ("debug".equals(level) && !PERCY_DEBUG) { return; }
+        log(message.get(), level);
+    }
+
+    /**
+     * Waits for buffered log lines to be sent to the CLI.
+     */
+    static boolean flushLogs(long timeout, TimeUnit unit) {
+        return LOG_SHIPPER.flush(timeout, unit);
+    }
+
+    private static LogShipper createLogShipper() {
+        LogShipper shipper = new LogShipper(Percy::sendLog,
+                Environment.getIntEnv("PERCY_LOG_BUFFER_SIZE", 1000),
+                Environment.getIntEnv("PERCY_LOG_BATCH_SIZE", 50));
+        // One hook so the order is fixed: what the upload flush logs is still queued
+        // when the log flush starts. The JVM runs separate hooks in no particular order.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            SnapshotUploader.flushSharedOnExit();
+            // Printed directly: anything logged now would land in the buffer being flushed
+            String report = shipper.flushOnExit(5, TimeUnit.SECONDS);
+            if (report != null) { System.out.println(LABEL + " " + report); }
+        }, "percy-exit-flush"));
+        return shipper;
+    }
+
+    /**
+     * POSTs one (possibly multi-line) log message to the CLI. Runs on the log shipper thread.
+     */
+    private static void sendLog(String message, String level) {
         JSONObject logJson = new JSONObject();
         logJson.put("message", message);
         logJson.put("level", level);
         StringEntity entity = new StringEntity(logJson.toString(), ContentType.APPLICATION_JSON);
 
-        int timeout = 1000; // 1 second
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setSocketTimeout(timeout)
-                .setConnectTimeout(timeout)
-                .build();
+        HttpPost logRequest = new HttpPost(PERCY_SERVER_ADDRESS + "/percy/log");
+        logRequest.setConfig(HttpTransport.LOG_CONFIG);
+        logRequest.setEntity(entity);
 
-        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build()) {
-            HttpPost logRequest = new HttpPost(PERCY_SERVER_ADDRESS + "/percy/log");
-            logRequest.setEntity(entity);
-            httpClient.execute(logRequest);
+        try (CloseableHttpResponse response = HttpTransport.client().execute(logRequest)) {
+            // Drain the body so the connection goes back to the pool
+            EntityUtils.consume(response.getEntity());
         } catch (Exception ex) {
             if (PERCY_DEBUG) { System.out.println("Sending log to CLI failed: " + ex.toString()); }
-        } finally {
-            // Print to stdout unless it is a debug message and debug mode is off
-            if (!"debug".equals(level) || PERCY_DEBUG) {
-                System.out.println(message);
-            }
         }
     }
 }
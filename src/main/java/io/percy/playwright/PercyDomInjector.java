@@ -0,0 +1,95 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.Page;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Package-private helper that installs PercyDOM once per {@link BrowserContext} instead
+ * of pushing the whole dom.js over the Playwright pipe for every snapshot, width and
+ * frame.
+ *
+ * <p>dom.js is registered with {@link BrowserContext#addInitScript(String)}, so every
+ * document created afterwards (navigations, reloads, iframes) already has
+ * {@code PercyDOM}. Each copy also records a version tag derived from the script
+ * content in {@code window.__percyDomVersion}; before a capture only that tag is checked,
+ * and the full script is evaluated only when it is missing or stale (pages loaded before
+ * registration, or a CLI upgrade).</p>
+ */
+class PercyDomInjector {
+    static final String VERSION_GLOBAL = "__percyDomVersion";
+
+    private static final String CHECK_JS =
+            "(v) => typeof PercyDOM !== 'undefined' && window." + VERSION_GLOBAL + " === v";
+
+    // Version of the init script registered per context; weak so closed contexts go away
+    private static final Map<BrowserContext, String> REGISTERED =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private PercyDomInjector() { }
+
+    /**
+     * @return A short tag identifying this dom.js content.
+     */
+    static String version(String script) {
+        return Integer.toHexString(script.hashCode()) + "-" + script.length();
+    }
+
+    /**
+     * @return dom.js followed by the statement that records its version tag.
+     */
+    static String withVersionTag(String script) {
+        return script + "\n;window." + VERSION_GLOBAL + " = " + JSONObject.quote(version(script)) + ";";
+    }
+
+    /**
+     * Registers dom.js as an init script of {@code context} unless this version already is.
+     */
+    static void register(BrowserContext context, String script) {
+        if (context == null || script == null || script.trim().isEmpty()) { return; }
+        String version = version(script);
+        synchronized (REGISTERED) {
+            if (version.equals(REGISTERED.get(context))) { return; }
+            context.addInitScript(withVersionTag(script));
+            REGISTERED.put(context, version);
+        }
+    }
+
+    /**
+     * Makes sure the current document of {@code page} has this version of PercyDOM.
+     *
+     * @return {@code true} if the full script had to be evaluated.
+     */
+    static boolean ensureLoaded(Page page, String script) {
+        return ensureLoaded(page::evaluate, page::evaluate, script);
+    }
+
+    /**
+     * Makes sure the current document of {@code frame} has this version of PercyDOM.
+     *
+     * @return {@code true} if the full script had to be evaluated.
+     */
+    static boolean ensureLoaded(Frame frame, String script) {
+        return ensureLoaded(frame::evaluate, frame::evaluate, script);
+    }
+
+    static boolean isRegistered(BrowserContext context) {
+        return REGISTERED.containsKey(context);
+    }
+
+    private static boolean ensureLoaded(
+            BiFunction<String, Object, Object> check,
+            Function<String, Object> evaluate,
+            String script) {
+        if (Boolean.TRUE.equals(check.apply(CHECK_JS, version(script)))) { return false; }
+        evaluate.apply(withVersionTag(script));
+        return true;
+    }
+}
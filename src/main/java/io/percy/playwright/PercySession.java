@@ -0,0 +1,201 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs one {@link Playwright} instance, and the {@link Percy} instances for its pages, on
+ * a single thread of its own, so any number of test threads can share one browser.
+ *
+ * <p>Playwright objects may only be used from the thread that created them, and
+ * {@code Percy} keeps per-page state without synchronization. A session therefore
+ * creates its {@code Playwright} on its own thread and runs every piece of work handed
+ * to {@link #submit(Function)} there, one at a time. {@link #snapshot(Page, String, Map)}
+ * captures the DOM on that thread and uploads it in the background, so the session
+ * thread moves on to the next capture while the CLI processes the previous one.</p>
+ *
+ * <pre>{@code
+ * try (PercySession session = PercySession.create()) {
+ *     Page page = session.call(pw -> pw.chromium().launch().newPage());
+ *     // from any test thread:
+ *     session.call(pw -> page.navigate(url));
+ *     session.snapshot(page, "Home").join();
+ * }
+ * }</pre>
+ *
+ * <p>Pages, browsers and other Playwright objects obtained from a session may be passed
+ * between threads, but must only be used inside work submitted to that session.</p>
+ */
+public final class PercySession implements AutoCloseable {
+    private static final AtomicInteger SESSION_COUNT = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private volatile Thread thread;
+    private final Playwright playwright;
+    private final Function<Page, Percy> percyFactory;
+
+    // One Percy per page, only touched on the session thread
+    private final Map<Page, Percy> percies = new IdentityHashMap<>();
+
+    private PercySession(Supplier<Playwright> playwrightFactory, Function<Page, Percy> percyFactory) {
+        int id = SESSION_COUNT.incrementAndGet();
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread t = new Thread(task, "percy-session-" + id);
+            t.setDaemon(true);
+            thread = t;
+            return t;
+        });
+        this.percyFactory = percyFactory;
+        try {
+            this.playwright = CompletableFuture.supplyAsync(playwrightFactory, executor).get();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while starting Playwright", e);
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Starts a session with a new {@link Playwright} instance.
+     */
+    public static PercySession create() {
+        return create(Playwright::create);
+    }
+
+    /**
+     * Starts a session with the {@link Playwright} instance {@code playwrightFactory}
+     * creates; the factory runs on the session thread.
+     */
+    public static PercySession create(Supplier<Playwright> playwrightFactory) {
+        return new PercySession(playwrightFactory, Percy::new);
+    }
+
+    static PercySession create(Supplier<Playwright> playwrightFactory, Function<Page, Percy> percyFactory) {
+        return new PercySession(playwrightFactory, percyFactory);
+    }
+
+    /**
+     * Runs {@code work} on the session thread.
+     *
+     * @return A future completed with the work's result, or exceptionally with what it threw.
+     */
+    public <T> CompletableFuture<T> submit(Function<Playwright, T> work) {
+        if (isSessionThread()) {
+            // Already confined; queuing behind ourselves would deadlock a caller that waits
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                result.complete(work.apply(playwright));
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        return CompletableFuture.supplyAsync(() -> work.apply(playwright), executor);
+    }
+
+    /**
+     * Runs {@code work} on the session thread and waits for its result.
+     *
+     * @throws RuntimeException Whatever {@code work} threw.
+     */
+    public <T> T call(Function<Playwright, T> work) {
+        try {
+            return submit(work).join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Takes a snapshot of {@code page} with the {@link Percy} instance kept for it.
+     *
+     * @return A future completed with what {@link Percy#snapshot(String, Map)} returns once
+     *         the upload finishes.
+     */
+    public CompletableFuture<JSONObject> snapshot(Page page, String name, Map<String, Object> options) {
+        return submit(pw -> percyFor(page).snapshotAsync(name, options))
+                .thenCompose(upload -> upload);
+    }
+
+    public CompletableFuture<JSONObject> snapshot(Page page, String name) {
+        return snapshot(page, name, new HashMap<String, Object>());
+    }
+
+    /**
+     * Takes an Automate screenshot of {@code page} with the {@link Percy} instance kept for it.
+     */
+    public CompletableFuture<JSONObject> screenshot(Page page, String name, Map<String, Object> options) {
+        return submit(pw -> {
+            try {
+                return percyFor(page).screenshot(name, options);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * @return The {@link Percy} instance for {@code page}, created on first use. Must be
+     *         used inside work submitted to this session.
+     */
+    public Percy percyFor(Page page) {
+        if (!isSessionThread()) {
+            throw new IllegalStateException("Percy for a session page can only be used on the session thread");
+        }
+        Percy percy = percies.get(page);
+        if (percy == null) {
+            percy = percyFactory.apply(page);
+            percies.put(page, percy);
+            // Dispatched on the session thread, like every Playwright event
+            page.onClose(closed -> percies.remove(closed));
+        }
+        return percy;
+    }
+
+    /**
+     * Closes the {@link Playwright} instance and stops the session thread. Snapshots still
+     * uploading are not waited for; see {@link Percy#flushSnapshots(long, TimeUnit)}.
+     */
+    @Override
+    public void close() {
+        if (executor.isShutdown()) { return; }
+        try {
+            call(pw -> {
+                percies.clear();
+                pw.close();
+                return null;
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    boolean isSessionThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) { return (RuntimeException) cause; }
+        if (cause instanceof Error) { throw (Error) cause; }
+        return new RuntimeException(cause);
+    }
+}
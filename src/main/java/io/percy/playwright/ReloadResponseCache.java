@@ -0,0 +1,128 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.Response;
+import com.microsoft.playwright.Route;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Package-private in-memory response cache used while responsive capture reloads the
+ * page once per width.
+ *
+ * <p>{@link #install(Page)} routes every request of the page through this cache. A
+ * request it has no answer for falls back to the routes the test registered before it,
+ * and from there to the network, so mocks and stubs set up with {@code page.route} or
+ * {@code context.route} answer the first load as usual. Successful {@code GET} responses
+ * are recorded as the page finishes loading them, whoever answered, and later reloads are
+ * fulfilled from memory: each width renders what the test rendered, without reaching the
+ * app server or running the test's route handlers again. Responses are replayed
+ * regardless of their HTTP caching headers: the point of reloading is to re-run the page
+ * at a new width, not to pick up new content. The cache lives for one responsive capture
+ * only and is removed by {@link #uninstall()}.</p>
+ */
+class ReloadResponseCache {
+    static final String PATTERN = "**/*";
+
+    static class Entry {
+        final int status;
+        final Map<String, String> headers;
+        final byte[] body;
+
+        Entry(int status, Map<String, String> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final Consumer<Route> handler = this::handle;
+    private final Consumer<Request> recorder = this::recordFinished;
+    private Page page;
+
+    ReloadResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    void install(Page page) {
+        page.route(PATTERN, handler);
+        try {
+            page.onRequestFinished(recorder);
+        } catch (RuntimeException e) {
+            page.unroute(PATTERN, handler);
+            throw e;
+        }
+        this.page = page;
+    }
+
+    void uninstall() {
+        if (page == null) { return; }
+        try {
+            page.offRequestFinished(recorder);
+            page.unroute(PATTERN, handler);
+        } finally {
+            page = null;
+            entries.clear();
+            storedBytes.set(0);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int hits() {
+        return hits.get();
+    }
+
+    void handle(Route route) {
+        Request request = route.request();
+        Entry cached = "GET".equalsIgnoreCase(request.method()) ? entries.get(request.url()) : null;
+        if (cached == null) {
+            // Earlier routes (the test's own) or the network answer, and recordFinished keeps it
+            route.fallback();
+            return;
+        }
+        hits.incrementAndGet();
+        route.fulfill(new Route.FulfillOptions()
+                .setStatus(cached.status)
+                .setHeaders(cached.headers)
+                .setBodyBytes(cached.body));
+    }
+
+    void recordFinished(Request request) {
+        String url = request.url();
+        if (!"GET".equalsIgnoreCase(request.method()) || entries.containsKey(url)) { return; }
+        try {
+            Response response = request.response();
+            // Redirected and unsuccessful answers are loaded afresh every time
+            if (response == null || response.status() != 200 || !url.equals(response.url())) { return; }
+            record(url, response.status(), response.headers(), response.body());
+        } catch (RuntimeException e) {
+            // The body may be gone already, e.g. after a navigation; reloads fetch it again
+        }
+    }
+
+    private void record(String url, int status, Map<String, String> responseHeaders, byte[] body) {
+        if (storedBytes.addAndGet(body.length) > maxBytes) {
+            storedBytes.addAndGet(-body.length);
+            return;
+        }
+        // The body is stored decoded, so its original framing no longer applies
+        Map<String, String> headers = new HashMap<>(responseHeaders);
+        headers.remove("content-encoding");
+        headers.remove("content-length");
+        headers.remove("transfer-encoding");
+        entries.put(url, new Entry(status, headers, body));
+    }
+}
@@ -0,0 +1,87 @@
+package io.percy.playwright;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.GzipCompressingEntity;
+
+/**
+ * Package-private helper that decides whether a request body sent to the Percy CLI is
+ * gzip-compressed.
+ *
+ * <p>Compression is negotiated the RFC 7694 way: the CLI advertises the request
+ * content codings it accepts with an {@code Accept-Encoding} header on its healthcheck
+ * response. Bodies smaller than {@code PERCY_REQUEST_COMPRESSION_THRESHOLD} bytes are
+ * sent as-is since gzip would cost more than it saves on the loopback link. Setting
+ * {@code PERCY_REQUEST_COMPRESSION=off} disables compression altogether.</p>
+ */
+class RequestCompression {
+    static final String GZIP = "gzip";
+
+    // "auto" follows what the CLI advertises, "off" never compresses
+    private static final String MODE =
+            System.getenv().getOrDefault("PERCY_REQUEST_COMPRESSION", "auto");
+
+    // Bodies below this many bytes are never compressed
+    private static final int THRESHOLD =
+            Environment.getIntEnv("PERCY_REQUEST_COMPRESSION_THRESHOLD", 256 * 1024);
+
+    private RequestCompression() { }
+
+    /**
+     * @return {@code true} if the response advertises gzip in its {@code Accept-Encoding}
+     *         header and compression has not been switched off.
+     */
+    static boolean acceptsGzip(HttpResponse response) {
+        if ("off".equalsIgnoreCase(MODE)) { return false; }
+        for (Header header : response.getHeaders("Accept-Encoding")) {
+            for (HeaderElement element : header.getElements()) {
+                if (GZIP.equalsIgnoreCase(element.getName())) {
+                    return !isRefused(element);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the streamed JSON request entity, gzip-compressed when the CLI accepts it and
+     * the body is estimated to be at least {@link #threshold()} bytes.
+     */
+    static HttpEntity jsonEntity(Object payload, boolean gzipAccepted) {
+        return jsonEntity(new JsonStreamEntity(payload), payload, gzipAccepted);
+    }
+
+    /**
+     * Same as {@link #jsonEntity(Object, boolean)} for an entity the caller keeps hold of,
+     * e.g. to read {@link JsonStreamEntity#bytesWritten()} once it has been sent.
+     */
+    static HttpEntity jsonEntity(JsonStreamEntity entity, Object payload, boolean gzipAccepted) {
+        if (gzipAccepted && JsonStreamEntity.estimateSize(payload) >= THRESHOLD) {
+            return new GzipCompressingEntity(entity);
+        }
+        return entity;
+    }
+
+    static boolean isCompressed(HttpEntity entity) {
+        return entity != null && entity.getContentEncoding() != null
+                && GZIP.equalsIgnoreCase(entity.getContentEncoding().getValue());
+    }
+
+    static int threshold() {
+        return THRESHOLD;
+    }
+
+    // "gzip;q=0" explicitly refuses the coding
+    private static boolean isRefused(HeaderElement element) {
+        NameValuePair q = element.getParameterByName("q");
+        if (q == null || q.getValue() == null) { return false; }
+        try {
+            return Double.parseDouble(q.getValue()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
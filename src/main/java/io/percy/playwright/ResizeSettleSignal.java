@@ -0,0 +1,117 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.Page;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Package-private push-based "resize has settled" signal for responsive capture.
+ *
+ * <p>Instead of polling {@code window.resizeCount} with a fixed timeout, a listener in the
+ * page counts {@code resize} events and, once the viewport width and document height have
+ * been unchanged for {@code settleFrames} animation frames, reports the count to Java
+ * through a binding exposed with {@link Page#exposeBinding}. Java waits on it with
+ * {@link Page#waitForCondition}, which dispatches the binding call as soon as it arrives.</p>
+ *
+ * <p>The timeout adapts to the page: it starts at {@code maxTimeoutMs} and then tracks a
+ * multiple of the slowest settle seen so far, never below {@link #MIN_TIMEOUT_MS}.</p>
+ */
+class ResizeSettleSignal {
+    static final String BINDING = "__percyResizeSettled";
+    static final double MIN_TIMEOUT_MS = 250;
+
+    // Installs the listener once per document; resets its count on every new document
+    static final String LISTENER_JS =
+            "(frames) => {"
+            + "  if (window.__percyResizeListener) { return; }"
+            + "  window.__percyResizeListener = true;"
+            + "  let count = 0;"
+            + "  window.addEventListener('resize', () => {"
+            + "    const n = ++count;"
+            + "    let stable = 0, w = -1, h = -1;"
+            + "    const tick = () => {"
+            + "      if (n !== count) { return; }"
+            + "      const cw = window.innerWidth, ch = document.documentElement.scrollHeight;"
+            + "      if (cw === w && ch === h) { stable++; } else { stable = 0; w = cw; h = ch; }"
+            + "      if (stable >= frames) { window." + BINDING + "(n); } else { requestAnimationFrame(tick); }"
+            + "    };"
+            + "    requestAnimationFrame(tick);"
+            + "  });"
+            + "}";
+
+    // Binding can only be exposed once per page; weak so closed pages go away
+    private static final Map<Page, ResizeSettleSignal> SIGNALS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final double maxTimeoutMs;
+    private volatile int settledCount = 0;
+    private double slowestSettleMs = -1;
+
+    ResizeSettleSignal(double maxTimeoutMs) {
+        this.maxTimeoutMs = Math.max(MIN_TIMEOUT_MS, maxTimeoutMs);
+    }
+
+    /**
+     * @return The signal bound to {@code page}, exposing the binding on first use.
+     */
+    static ResizeSettleSignal forPage(Page page, double maxTimeoutMs) {
+        synchronized (SIGNALS) {
+            ResizeSettleSignal signal = SIGNALS.get(page);
+            if (signal == null) {
+                ResizeSettleSignal created = new ResizeSettleSignal(maxTimeoutMs);
+                page.exposeBinding(BINDING, (source, args) -> {
+                    if (args.length > 0 && args[0] instanceof Number) {
+                        created.settled(((Number) args[0]).intValue());
+                    }
+                    return null;
+                });
+                SIGNALS.put(page, created);
+                signal = created;
+            }
+            return signal;
+        }
+    }
+
+    /**
+     * Installs the in-page listener on the current document and restarts counting, as
+     * after a navigation or reload.
+     */
+    void arm(Page page, int settleFrames) {
+        settledCount = 0;
+        page.evaluate(LISTENER_JS, Math.max(1, settleFrames));
+    }
+
+    /**
+     * Waits until the page reports that resize number {@code resizeCount} has settled.
+     *
+     * @return {@code false} if the page did not report in time.
+     */
+    boolean await(Page page, int resizeCount) {
+        long start = System.nanoTime();
+        try {
+            page.waitForCondition(() -> settledCount >= resizeCount,
+                    new Page.WaitForConditionOptions().setTimeout(timeoutMs()));
+        } catch (RuntimeException e) {
+            return false;
+        }
+        slowestSettleMs = Math.max(slowestSettleMs, (System.nanoTime() - start) / 1_000_000.0);
+        return true;
+    }
+
+    /**
+     * @return Current wait limit: the configured maximum until a settle has been observed,
+     *         then four times the slowest settle seen, within bounds.
+     */
+    double timeoutMs() {
+        if (slowestSettleMs < 0) { return maxTimeoutMs; }
+        return Math.min(maxTimeoutMs, Math.max(MIN_TIMEOUT_MS, slowestSettleMs * 4));
+    }
+
+    void settled(int count) {
+        if (count > settledCount) {
+            settledCount = count;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.percy.playwright;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Package-private payload rewriter that sends each distinct resource and cookie set of a
+ * responsive snapshot once instead of once per width.
+ *
+ * <p>Like request compression, the format is negotiated: the CLI advertises
+ * {@value #FEATURE} in an {@value #FEATURES_HEADER} header on its healthcheck response,
+ * and without it payloads keep the plain format. Setting {@code PERCY_RESOURCE_DEDUP=off}
+ * also keeps the plain format.</p>
+ *
+ * <p>In the deduplicated format every per-width entry of {@code domSnapshot} replaces
+ * {@code resources} with {@code resourceRefs}, a list of content hashes, and
+ * {@code cookies} with {@code cookiesRef}. The payload carries the referenced values once
+ * in {@code sharedResources} and {@code sharedCookies}, keyed by the same hashes
+ * (SHA-256 of the value's JSON).</p>
+ */
+class ResourceDedup {
+    static final String FEATURES_HEADER = "X-Percy-Snapshot-Features";
+    static final String FEATURE = "resource-refs";
+
+    // "auto" follows what the CLI advertises, "off" always sends the plain format
+    private static final String MODE = System.getenv().getOrDefault("PERCY_RESOURCE_DEDUP", "auto");
+
+    private ResourceDedup() { }
+
+    /**
+     * @return {@code true} if the response advertises {@value #FEATURE} and deduplication
+     *         has not been switched off.
+     */
+    static boolean isSupported(HttpResponse response) {
+        if ("off".equalsIgnoreCase(MODE)) { return false; }
+        for (Header header : response.getHeaders(FEATURES_HEADER)) {
+            for (HeaderElement element : header.getElements()) {
+                if (FEATURE.equalsIgnoreCase(element.getName())) { return true; }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rewrites {@code payload} in place into the deduplicated format when its
+     * {@code domSnapshot} is a list of more than one width.
+     *
+     * @return {@code true} if the payload was rewritten.
+     */
+    @SuppressWarnings("unchecked")
+    static boolean apply(Map<String, Object> payload) {
+        Object domSnapshot = payload.get("domSnapshot");
+        if (!(domSnapshot instanceof List) || ((List<?>) domSnapshot).size() < 2) { return false; }
+
+        Map<String, Object> sharedResources = new LinkedHashMap<>();
+        Map<String, Object> sharedCookies = new LinkedHashMap<>();
+        List<Object> widths = new ArrayList<>();
+        for (Object entry : (List<Object>) domSnapshot) {
+            if (!(entry instanceof Map)) {
+                widths.add(entry);
+                continue;
+            }
+            Map<String, Object> width = new LinkedHashMap<>((Map<String, Object>) entry);
+            Object resources = width.remove("resources");
+            if (resources instanceof List) {
+                List<String> refs = new ArrayList<>();
+                for (Object resource : (List<Object>) resources) {
+                    String hash = ContentHash.sha256(resource);
+                    sharedResources.putIfAbsent(hash, resource);
+                    refs.add(hash);
+                }
+                width.put("resourceRefs", refs);
+            } else if (resources != null) {
+                width.put("resources", resources);
+            }
+            if (width.containsKey("cookies")) {
+                Object cookies = width.remove("cookies");
+                String hash = ContentHash.sha256(cookies);
+                sharedCookies.putIfAbsent(hash, cookies);
+                width.put("cookiesRef", hash);
+            }
+            widths.add(width);
+        }
+
+        payload.put("domSnapshot", widths);
+        payload.put("sharedResources", sharedResources);
+        payload.put("sharedCookies", sharedCookies);
+        return true;
+    }
+}
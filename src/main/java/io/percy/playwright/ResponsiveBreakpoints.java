@@ -0,0 +1,341 @@
+package io.percy.playwright;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Package-private planner that collapses responsive widths falling between the same
+ * media-query breakpoints, so the DOM is serialized once per breakpoint interval instead
+ * of once per width.
+ *
+ * <p>Breakpoints come from the media queries the page knows about: CSSOM media rules,
+ * {@code media} attributes, and every query passed to {@code window.matchMedia} since
+ * {@link #RECORDER_JS} was installed. Each query is reduced to integer "cuts", where a
+ * cut {@code c} separates widths {@code < c} from widths {@code >= c}. Widths with the
+ * same height and no cut between them form a group.</p>
+ *
+ * <p>Media queries are not the only way a page reacts to its width: scripts reading
+ * {@code innerWidth} or using {@code ResizeObserver} change the DOM too, and the planner
+ * cannot see them. So only a group's narrowest and widest widths are captured at first,
+ * and its widths in between share that capture only once {@link DomFingerprint}s taken at
+ * both ends match (see {@link Plan#verify(List)}); otherwise they are all captured. A
+ * script whose output changes between the ends and changes back can still go unnoticed,
+ * which is why the planner is opt-in. Only requested widths are ever captured.</p>
+ *
+ * <p>The planner is deliberately conservative: when a query depends on the viewport in a
+ * way it cannot reduce to width cuts (orientation, aspect ratio, container queries,
+ * unknown units), or a stylesheet cannot be read, no widths are collapsed.</p>
+ */
+class ResponsiveBreakpoints {
+    // Root font size media queries resolve em/rem against
+    private static final double EM_PX = 16;
+
+    // Records every query the page passes to matchMedia; installed as an init script
+    static final String RECORDER_JS =
+            "(() => {"
+            + "  if (window.__percyMediaQueries || !window.matchMedia) { return; }"
+            + "  const seen = window.__percyMediaQueries = [];"
+            + "  const matchMedia = window.matchMedia;"
+            + "  window.matchMedia = function (query) {"
+            + "    const text = String(query);"
+            + "    if (seen.indexOf(text) < 0) { seen.push(text); }"
+            + "    return matchMedia.apply(this, arguments);"
+            + "  };"
+            + "})();";
+
+    // Returns the page's media query texts, or null when breakpoints cannot be known
+    static final String COLLECT_JS =
+            "() => {"
+            + "  if (!Array.isArray(window.__percyMediaQueries)) { return null; }"
+            + "  const texts = new Set(window.__percyMediaQueries);"
+            + "  let complete = true;"
+            + "  const visit = (rules) => {"
+            + "    for (const rule of rules) {"
+            + "      if (typeof CSSContainerRule !== 'undefined' && rule instanceof CSSContainerRule) { complete = false; }"
+            + "      if (rule.media && rule.media.mediaText) { texts.add(rule.media.mediaText); }"
+            + "      let children = null;"
+            + "      try { children = rule.cssRules || (rule.styleSheet && rule.styleSheet.cssRules); } catch (e) { complete = false; }"
+            + "      if (children) { visit(children); }"
+            + "    }"
+            + "  };"
+            + "  const sheets = Array.from(document.styleSheets).concat(Array.from(document.adoptedStyleSheets || []));"
+            + "  for (const sheet of sheets) {"
+            + "    if (sheet.media && sheet.media.mediaText) { texts.add(sheet.media.mediaText); }"
+            + "    try { visit(sheet.cssRules); } catch (e) { complete = false; }"
+            + "  }"
+            + "  document.querySelectorAll('[media]').forEach(el => texts.add(el.getAttribute('media')));"
+            + "  return complete ? Array.from(texts) : null;"
+            + "}";
+
+    private static final String LENGTH = "([0-9]*\\.?[0-9]+)\\s*(px|em|rem)?";
+    // (min-width: 768px), (max-device-width: 40em), (width: 600px)
+    private static final Pattern FEATURE = Pattern.compile(
+            "\\(\\s*(min-|max-)?(?:device-)?width\\s*:\\s*" + LENGTH + "\\s*\\)");
+    // (width >= 768px), (400px < width <= 700px): the comparison after / before the token
+    private static final Pattern WIDTH = Pattern.compile("(?:device-)?width");
+    private static final Pattern RANGE_AFTER = Pattern.compile("\\s*(<=|>=|<|>|=)\\s*" + LENGTH);
+    private static final Pattern RANGE_BEFORE = Pattern.compile(LENGTH + "\\s*(<=|>=|<|>|=)\\s*$");
+
+    private ResponsiveBreakpoints() { }
+
+    /**
+     * Reduces media query texts to width cuts.
+     *
+     * @return The sorted cuts, or {@code null} if any query depends on the viewport in a
+     *         way that cannot be expressed as width cuts.
+     */
+    static SortedSet<Integer> cuts(Collection<String> queries) {
+        SortedSet<Integer> cuts = new TreeSet<>();
+        for (String query : queries) {
+            if (query == null) { continue; }
+            String text = query.toLowerCase(Locale.ROOT);
+            if (text.contains("orientation") || text.contains("aspect-ratio")) { return null; }
+
+            StringBuffer rest = new StringBuffer();
+            Matcher feature = FEATURE.matcher(text);
+            while (feature.find()) {
+                Double px = toPx(feature.group(2), feature.group(3));
+                if (px == null) { return null; }
+                String prefix = feature.group(1);
+                if (prefix == null) {
+                    addCuts(cuts, "=", px);
+                } else {
+                    addCuts(cuts, prefix.equals("min-") ? ">=" : "<=", px);
+                }
+                feature.appendReplacement(rest, "");
+            }
+            feature.appendTail(rest);
+            text = rest.toString();
+
+            // Every remaining width token must be one side of a range comparison
+            Matcher token = WIDTH.matcher(text);
+            while (token.find()) {
+                Matcher after = RANGE_AFTER.matcher(text).region(token.end(), text.length());
+                Matcher before = RANGE_BEFORE.matcher(text.substring(0, token.start()));
+                boolean understood = false;
+                if (after.lookingAt()) {
+                    Double px = toPx(after.group(2), after.group(3));
+                    if (px == null) { return null; }
+                    addCuts(cuts, after.group(1), px);
+                    understood = true;
+                }
+                if (before.find()) {
+                    Double px = toPx(before.group(1), before.group(2));
+                    if (px == null) { return null; }
+                    addCuts(cuts, flip(before.group(3)), px);
+                    understood = true;
+                }
+                if (!understood) { return null; }
+            }
+        }
+        return cuts;
+    }
+
+    /**
+     * Groups {@code widthHeights} by breakpoint interval and height and orders the first
+     * captures: each group's narrowest and widest width, ascending, with the current
+     * viewport first if it is one of them (so it needs no resize).
+     */
+    static Plan plan(List<Map<String, Object>> widthHeights, int defaultHeight,
+                     SortedSet<Integer> cuts, int currentWidth, int currentHeight) {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (Map<String, Object> widthHeight : widthHeights) {
+            int width = (int) widthHeight.get("width");
+            int height = heightOf(widthHeight, defaultHeight);
+            groups.computeIfAbsent(key(cuts, width, height), k -> new Group(height)).widths.add(width);
+        }
+
+        List<Map<String, Object>> captures = new ArrayList<>();
+        for (Group group : groups.values()) {
+            captures.add(capture(group.widths.first(), group.height));
+            if (group.widths.size() > 1) {
+                captures.add(capture(group.widths.last(), group.height));
+            }
+        }
+        sortByWidth(captures);
+        for (Map<String, Object> capture : captures) {
+            if ((int) capture.get("width") == currentWidth && (int) capture.get("height") == currentHeight) {
+                captures.remove(capture);
+                captures.add(0, capture);
+                break;
+            }
+        }
+        return new Plan(widthHeights, defaultHeight, new ArrayList<>(groups.values()), captures);
+    }
+
+    /**
+     * The widths to capture for one responsive snapshot and how to map the captured DOMs
+     * back onto every requested width.
+     */
+    static class Plan {
+        private final List<Map<String, Object>> widthHeights;
+        private final int defaultHeight;
+        private final List<Group> groups;
+        private final List<Map<String, Object>> captures;
+        private final List<Map<String, Object>> captured = new ArrayList<>();
+
+        Plan(List<Map<String, Object>> widthHeights, int defaultHeight,
+             List<Group> groups, List<Map<String, Object>> captures) {
+            this.widthHeights = widthHeights;
+            this.defaultHeight = defaultHeight;
+            this.groups = groups;
+            this.captures = captures;
+        }
+
+        /**
+         * @return The width/height pairs to capture first, in capture order.
+         */
+        List<Map<String, Object>> captures() {
+            return Collections.unmodifiableList(captures);
+        }
+
+        /**
+         * Compares the {@link DomFingerprint}s taken for {@link #captures()} (in the same
+         * order; {@code null} where none could be taken). Groups whose ends match may share
+         * one capture; the widths in between of every other group must be captured too.
+         *
+         * @return The further width/height pairs to capture, ascending by width.
+         */
+        List<Map<String, Object>> verify(List<String> fingerprints) {
+            Map<String, String> byCapture = new HashMap<>();
+            for (int i = 0; i < fingerprints.size() && i < captures.size(); i++) {
+                byCapture.put(exact(captures.get(i)), fingerprints.get(i));
+            }
+
+            List<Map<String, Object>> more = new ArrayList<>();
+            for (Group group : groups) {
+                if (group.widths.size() < 3) { continue; }
+                String first = byCapture.get(group.height + ":" + group.widths.first());
+                String last = byCapture.get(group.height + ":" + group.widths.last());
+                if (first != null && first.equals(last)) {
+                    group.verified = true;
+                    continue;
+                }
+                for (int width : group.widths.subSet(group.widths.first() + 1, group.widths.last())) {
+                    more.add(capture(width, group.height));
+                }
+            }
+            sortByWidth(more);
+            captured.addAll(more);
+            return more;
+        }
+
+        /**
+         * Maps the DOMs captured for {@link #captures()} followed by those returned from
+         * {@link #verify(List)} (in the same order; a prefix if capture stopped early) onto
+         * every requested width, in the CLI's order.
+         */
+        List<Map<String, Object>> expand(List<Map<String, Object>> doms) {
+            List<Map<String, Object>> order = new ArrayList<>(captures);
+            order.addAll(captured);
+            Map<String, Map<String, Object>> byCapture = new HashMap<>();
+            for (int i = 0; i < doms.size() && i < order.size(); i++) {
+                byCapture.put(exact(order.get(i)), doms.get(i));
+            }
+
+            List<Map<String, Object>> domSnapshots = new ArrayList<>();
+            for (Map<String, Object> widthHeight : widthHeights) {
+                int width = (int) widthHeight.get("width");
+                int height = heightOf(widthHeight, defaultHeight);
+                Map<String, Object> dom = byCapture.get(height + ":" + width);
+                if (dom == null) {
+                    Group group = groupOf(width, height);
+                    if (group != null && group.verified) {
+                        dom = byCapture.get(height + ":" + group.widths.first());
+                    }
+                }
+                if (dom == null) { continue; }
+                Map<String, Object> copy = new HashMap<>(dom);
+                copy.put("width", width);
+                domSnapshots.add(copy);
+            }
+            return domSnapshots;
+        }
+
+        private Group groupOf(int width, int height) {
+            for (Group group : groups) {
+                if (group.height == height && group.widths.contains(width)) { return group; }
+            }
+            return null;
+        }
+    }
+
+    // Requested widths of one breakpoint interval and height
+    private static final class Group {
+        final int height;
+        final SortedSet<Integer> widths = new TreeSet<>();
+        // Set once fingerprints show the narrowest and widest width render the same DOM
+        boolean verified;
+
+        Group(int height) {
+            this.height = height;
+        }
+    }
+
+    private static Map<String, Object> capture(int width, int height) {
+        Map<String, Object> capture = new HashMap<>();
+        capture.put("width", width);
+        capture.put("height", height);
+        return capture;
+    }
+
+    private static String exact(Map<String, Object> capture) {
+        return capture.get("height") + ":" + capture.get("width");
+    }
+
+    private static void sortByWidth(List<Map<String, Object>> captures) {
+        captures.sort((a, b) -> Integer.compare((int) a.get("width"), (int) b.get("width")));
+    }
+
+    private static String key(SortedSet<Integer> cuts, int width, int height) {
+        // Interval index: how many cuts the width has reached
+        return cuts.headSet(width + 1).size() + ":" + height;
+    }
+
+    private static int heightOf(Map<String, Object> widthHeight, int defaultHeight) {
+        return widthHeight.containsKey("height") ? (int) widthHeight.get("height") : defaultHeight;
+    }
+
+    private static Double toPx(String value, String unit) {
+        double number = Double.parseDouble(value);
+        if (unit == null) { return number == 0 ? 0.0 : null; }
+        return unit.equals("px") ? number : number * EM_PX;
+    }
+
+    private static String flip(String op) {
+        switch (op) {
+            case "<": return ">";
+            case ">": return "<";
+            case "<=": return ">=";
+            case ">=": return "<=";
+            default: return op;
+        }
+    }
+
+    // Integer widths w satisfying "w op px" change at these cuts
+    private static void addCuts(SortedSet<Integer> cuts, String op, double px) {
+        switch (op) {
+            case ">=":
+            case "<":
+                cuts.add((int) Math.ceil(px));
+                break;
+            case ">":
+            case "<=":
+                cuts.add((int) Math.floor(px) + 1);
+                break;
+            default:
+                cuts.add((int) Math.ceil(px));
+                cuts.add((int) Math.floor(px) + 1);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.percy.playwright;
+
+/**
+ * Receives a {@link SnapshotMetrics} breakdown for every snapshot Percy takes.
+ *
+ * <p>Register listeners with {@link Percy#addSnapshotListener(SnapshotListener)}, or
+ * list implementations with a public no-argument constructor in
+ * {@code META-INF/services/io.percy.playwright.SnapshotListener} to have them picked up
+ * through {@link java.util.ServiceLoader}.</p>
+ *
+ * <p>Listeners are called on the thread that finished the snapshot, which for
+ * {@link Percy#snapshotAsync(String, java.util.Map)} is an upload thread, so
+ * implementations must be thread-safe and should return quickly. Exceptions they throw
+ * are logged and otherwise ignored.</p>
+ */
+public interface SnapshotListener {
+    void onSnapshot(SnapshotMetrics metrics);
+}
@@ -0,0 +1,55 @@
+package io.percy.playwright;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Package-private registry of the {@link SnapshotListener}s shared by every
+ * {@link Percy} instance.
+ *
+ * <p>It starts with the listeners found through {@link ServiceLoader} plus the
+ * {@link SnapshotMetricsExporter} configured by {@code PERCY_METRICS_FILE}, if any.</p>
+ */
+class SnapshotListeners {
+    private static final List<SnapshotListener> LISTENERS = new CopyOnWriteArrayList<>(discover());
+
+    private SnapshotListeners() { }
+
+    static void add(SnapshotListener listener) {
+        if (listener != null) { LISTENERS.add(listener); }
+    }
+
+    static void remove(SnapshotListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Hands {@code metrics} to every listener. A failing listener does not stop the others.
+     */
+    static void publish(SnapshotMetrics metrics) {
+        for (SnapshotListener listener : LISTENERS) {
+            try {
+                listener.onSnapshot(metrics);
+            } catch (Exception e) {
+                Percy.log(() -> "Snapshot listener " + listener.getClass().getName() + " failed: " + e.getMessage(), "debug");
+            }
+        }
+    }
+
+    private static List<SnapshotListener> discover() {
+        List<SnapshotListener> listeners = new ArrayList<>();
+        try {
+            for (SnapshotListener listener : ServiceLoader.load(SnapshotListener.class)) {
+                listeners.add(listener);
+            }
+        } catch (ServiceConfigurationError e) {
+            Percy.log(() -> "Could not load snapshot listeners: " + e.getMessage(), "debug");
+        }
+        SnapshotMetricsExporter exporter = SnapshotMetricsExporter.fromEnv();
+        if (exporter != null) { listeners.add(exporter); }
+        return listeners;
+    }
+}
@@ -0,0 +1,150 @@
+package io.percy.playwright;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing breakdown, payload size and outcome of one snapshot, as passed to
+ * {@link SnapshotListener}s.
+ *
+ * <p>Phase times are wall-clock nanoseconds keyed by the phase constants below, in the
+ * order the phases first ran. A phase that ran several times (once per responsive width,
+ * say) holds the sum, and phases that did not run are absent.</p>
+ */
+public final class SnapshotMetrics {
+    /** Fetching {@code dom.js} from the CLI (or the local cache). */
+    public static final String DOM_FETCH = "domFetch";
+    /** Injecting {@code dom.js} into the page. */
+    public static final String INJECT = "inject";
+    /** Reading the browser context's cookies. */
+    public static final String COOKIES = "cookies";
+    /** Waiting for the page to become ready before serializing. */
+    public static final String READINESS = "readiness";
+    /** Running {@code PercyDOM.serialize} in the page. */
+    public static final String SERIALIZE = "serialize";
+    /** Finding and serializing cross-origin iframes. */
+    public static final String FRAMES = "frames";
+    /** Resizing the viewport between responsive widths. */
+    public static final String RESIZE = "resize";
+    /** Reloading the page between responsive widths. */
+    public static final String RELOAD = "reload";
+    /** Sleeping for {@code RESPONSIVE_CAPTURE_SLEEP_TIME} between responsive widths. */
+    public static final String SLEEP = "sleep";
+    /** Building the JSON payload. */
+    public static final String PAYLOAD = "payload";
+    /** Sending the payload to the CLI and reading its response. */
+    public static final String POST = "post";
+
+    public enum Outcome {
+        /** The CLI accepted the snapshot. */
+        UPLOADED,
+        /** The snapshot was identical to an earlier one and was not sent. */
+        SKIPPED,
+        /** Capturing or uploading the snapshot failed. */
+        FAILED
+    }
+
+    private final String name;
+    private final Outcome outcome;
+    private final Map<String, Long> phaseNanos;
+    private final long totalNanos;
+    private final long payloadBytes;
+    private final int widths;
+    private final String error;
+
+    SnapshotMetrics(String name, Outcome outcome, Map<String, Long> phaseNanos,
+                    long totalNanos, long payloadBytes, int widths, String error) {
+        this.name = name;
+        this.outcome = outcome;
+        this.phaseNanos = Collections.unmodifiableMap(new LinkedHashMap<>(phaseNanos));
+        this.totalNanos = totalNanos;
+        this.payloadBytes = payloadBytes;
+        this.widths = widths;
+        this.error = error;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return Nanoseconds spent per phase, in the order the phases first ran.
+     */
+    public Map<String, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    /**
+     * @return Milliseconds spent in {@code phase}, or {@code 0} if it did not run.
+     */
+    public long getPhaseMillis(String phase) {
+        Long nanos = phaseNanos.get(phase);
+        return (nanos != null) ? TimeUnit.NANOSECONDS.toMillis(nanos) : 0;
+    }
+
+    /**
+     * @return Nanoseconds from the start of capture until the outcome was known.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    /**
+     * @return Uncompressed size of the JSON sent to the CLI, or {@code 0} if nothing was sent.
+     */
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    /**
+     * @return Number of DOM captures in the payload: the number of widths for a
+     *         responsive snapshot, otherwise {@code 1}. {@code 0} if capture failed.
+     */
+    public int getWidths() {
+        return widths;
+    }
+
+    /**
+     * @return Why the snapshot failed, or {@code null}.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return A one-line summary such as
+     *         {@code "home" uploaded in 1204ms (serialize 830ms, post 310ms), 2.4 MB}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append('"').append(name).append("\" ").append(outcome.name().toLowerCase(Locale.ROOT))
+                .append(" in ").append(getTotalMillis()).append("ms (");
+        boolean first = true;
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            if (!first) { out.append(", "); }
+            out.append(phase.getKey()).append(' ')
+                    .append(TimeUnit.NANOSECONDS.toMillis(phase.getValue())).append("ms");
+            first = false;
+        }
+        out.append(')');
+        if (payloadBytes > 0) {
+            out.append(", ").append(String.format(Locale.ROOT, "%.1f MB", payloadBytes / (1024.0 * 1024.0)));
+        }
+        if (error != null) {
+            out.append(": ").append(error);
+        }
+        return out.toString();
+    }
+}
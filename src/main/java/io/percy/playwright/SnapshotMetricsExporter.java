@@ -0,0 +1,158 @@
+package io.percy.playwright;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SnapshotListener} that writes snapshot metrics to a file.
+ *
+ * <p>In {@link Format#JSON_LINES} format every snapshot appends one JSON object to the
+ * file. In {@link Format#PROMETHEUS} format the file holds running totals in the
+ * Prometheus text exposition format and is replaced atomically after every snapshot,
+ * as the node exporter's textfile collector expects.</p>
+ *
+ * <p>Setting {@code PERCY_METRICS_FILE} registers an exporter for that file
+ * automatically. Its format is taken from {@code PERCY_METRICS_FORMAT}
+ * ({@code jsonl} or {@code prometheus}), defaulting to Prometheus for files ending in
+ * {@code .prom} and JSON lines otherwise.</p>
+ */
+public class SnapshotMetricsExporter implements SnapshotListener {
+    public enum Format { JSON_LINES, PROMETHEUS }
+
+    private final Path file;
+    private final Format format;
+
+    // Running totals for the Prometheus format
+    private final Map<SnapshotMetrics.Outcome, Long> snapshots = new EnumMap<>(SnapshotMetrics.Outcome.class);
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private long totalNanos = 0;
+    private long payloadBytes = 0;
+
+    public SnapshotMetricsExporter(Path file, Format format) {
+        this.file = file;
+        this.format = format;
+        for (SnapshotMetrics.Outcome outcome : SnapshotMetrics.Outcome.values()) {
+            snapshots.put(outcome, 0L);
+        }
+    }
+
+    /**
+     * @return The exporter configured through {@code PERCY_METRICS_FILE}, or {@code null}.
+     */
+    static SnapshotMetricsExporter fromEnv() {
+        String file = System.getenv("PERCY_METRICS_FILE");
+        if (file == null || file.trim().isEmpty()) { return null; }
+        return new SnapshotMetricsExporter(Paths.get(file.trim()),
+                format(System.getenv("PERCY_METRICS_FORMAT"), file.trim()));
+    }
+
+    static Format format(String name, String file) {
+        if (name == null || name.trim().isEmpty()) {
+            return file.endsWith(".prom") ? Format.PROMETHEUS : Format.JSON_LINES;
+        }
+        return "prometheus".equalsIgnoreCase(name.trim()) ? Format.PROMETHEUS : Format.JSON_LINES;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    Format getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized void onSnapshot(SnapshotMetrics metrics) {
+        try {
+            if (format == Format.PROMETHEUS) {
+                accumulate(metrics);
+                replace(prometheus());
+            } else {
+                Files.write(file, (jsonLine(metrics) + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write snapshot metrics to " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    static String jsonLine(SnapshotMetrics metrics) {
+        JSONObject phases = new JSONObject();
+        for (Map.Entry<String, Long> phase : metrics.getPhaseNanos().entrySet()) {
+            phases.put(phase.getKey(), TimeUnit.NANOSECONDS.toMillis(phase.getValue()));
+        }
+        JSONObject line = new JSONObject();
+        line.put("name", metrics.getName());
+        line.put("outcome", metrics.getOutcome().name().toLowerCase(Locale.ROOT));
+        line.put("totalMs", metrics.getTotalMillis());
+        line.put("phasesMs", phases);
+        line.put("payloadBytes", metrics.getPayloadBytes());
+        line.put("widths", metrics.getWidths());
+        line.put("error", metrics.getError());
+        return line.toString();
+    }
+
+    private void accumulate(SnapshotMetrics metrics) {
+        snapshots.merge(metrics.getOutcome(), 1L, Long::sum);
+        for (Map.Entry<String, Long> phase : metrics.getPhaseNanos().entrySet()) {
+            phaseNanos.merge(phase.getKey(), phase.getValue(), Long::sum);
+        }
+        totalNanos += metrics.getTotalNanos();
+        payloadBytes += metrics.getPayloadBytes();
+    }
+
+    String prometheus() {
+        long count = 0;
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP percy_snapshots_total Snapshots taken, by outcome.\n");
+        out.append("# TYPE percy_snapshots_total counter\n");
+        for (Map.Entry<SnapshotMetrics.Outcome, Long> outcome : snapshots.entrySet()) {
+            out.append("percy_snapshots_total{outcome=\"")
+                    .append(outcome.getKey().name().toLowerCase(Locale.ROOT)).append("\"} ")
+                    .append(outcome.getValue()).append('\n');
+            count += outcome.getValue();
+        }
+        out.append("# HELP percy_snapshot_seconds Time taken per snapshot.\n");
+        out.append("# TYPE percy_snapshot_seconds summary\n");
+        out.append("percy_snapshot_seconds_sum ").append(seconds(totalNanos)).append('\n');
+        out.append("percy_snapshot_seconds_count ").append(count).append('\n');
+        out.append("# HELP percy_snapshot_phase_seconds_total Time spent in each snapshot phase.\n");
+        out.append("# TYPE percy_snapshot_phase_seconds_total counter\n");
+        for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            out.append("percy_snapshot_phase_seconds_total{phase=\"").append(phase.getKey()).append("\"} ")
+                    .append(seconds(phase.getValue())).append('\n');
+        }
+        out.append("# HELP percy_snapshot_payload_bytes_total Uncompressed snapshot payload bytes sent to the CLI.\n");
+        out.append("# TYPE percy_snapshot_payload_bytes_total counter\n");
+        out.append("percy_snapshot_payload_bytes_total ").append(payloadBytes).append('\n');
+        return out.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    // Write then rename so a scraper never reads a half-written file
+    private void replace(String content) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.percy.playwright;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Package-private accumulator for the phase times of one snapshot.
+ *
+ * <p>Callers bracket a phase with {@code long started = timer.start();} and
+ * {@code timer.record(SnapshotMetrics.SERIALIZE, started);}. Capture runs on the calling
+ * thread and the upload may run on an uploader thread, so recording is synchronized.
+ * {@link #NOOP} ignores everything and is used outside of a snapshot, e.g. for the
+ * viewport restore.</p>
+ */
+class SnapshotTimer {
+    static final SnapshotTimer NOOP = new SnapshotTimer(false);
+
+    private final boolean enabled;
+    private final long startedAt = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long payloadBytes = 0;
+    private int widths = 0;
+    private String error;
+
+    SnapshotTimer() {
+        this(true);
+    }
+
+    private SnapshotTimer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time since {@code started} to {@code phase}.
+     */
+    synchronized void record(String phase, long started) {
+        if (!enabled) { return; }
+        phases.merge(phase, System.nanoTime() - started, Long::sum);
+    }
+
+    synchronized void payloadBytes(long bytes) {
+        if (enabled) { payloadBytes = bytes; }
+    }
+
+    synchronized void widths(int count) {
+        if (enabled) { widths = count; }
+    }
+
+    /**
+     * Remembers why the snapshot failed; the first reason wins.
+     */
+    synchronized void error(String message) {
+        if (enabled && error == null) { error = message; }
+    }
+
+    synchronized SnapshotMetrics finish(String name, SnapshotMetrics.Outcome outcome) {
+        return new SnapshotMetrics(name, outcome, phases, System.nanoTime() - startedAt,
+                payloadBytes, widths, error);
+    }
+}
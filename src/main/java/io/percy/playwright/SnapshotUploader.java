@@ -0,0 +1,177 @@
+package io.percy.playwright;
+
+import org.json.JSONObject;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Package-private background queue that posts captured snapshots to the Percy CLI.
+ *
+ * <p>Capture stays on the caller's (Playwright) thread; only the upload runs here. The
+ * queue is bounded: once {@code queueSize} uploads are in flight or waiting,
+ * {@link #submit(Supplier)} blocks the caller until one finishes, so a slow CLI applies
+ * backpressure instead of letting captured DOMs pile up on the heap. Waiting is done on
+ * a {@link Semaphore} rather than a monitor so the caller never parks while holding a
+ * lock.</p>
+ */
+class SnapshotUploader {
+    // Number of uploads posted to the CLI concurrently
+    private static final int UPLOAD_CONCURRENCY =
+            Environment.getIntEnv("PERCY_UPLOAD_CONCURRENCY", 2);
+
+    // Number of uploads allowed in flight or waiting before snapshotAsync blocks
+    private static final int UPLOAD_QUEUE_SIZE =
+            Environment.getIntEnv("PERCY_UPLOAD_QUEUE_SIZE", 16);
+
+    // How long the JVM shutdown hook waits for queued uploads (seconds); kept short so a
+    // hung CLI cannot hold JVM exit for long
+    private static final int UPLOAD_FLUSH_TIMEOUT =
+            Environment.getIntEnv("PERCY_UPLOAD_FLUSH_TIMEOUT", 30);
+
+    private static SnapshotUploader shared;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore permits;
+    private final Set<CompletableFuture<JSONObject>> pending = ConcurrentHashMap.newKeySet();
+
+    SnapshotUploader(int concurrency, int queueSize) {
+        int threads = Math.max(1, concurrency);
+        this.permits = new Semaphore(Math.max(threads, queueSize));
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new UploadThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return The process-wide uploader, created on first use. {@link Percy}'s shutdown
+     *         hook drains it before the JVM exits so queued snapshots are not lost.
+     */
+    static synchronized SnapshotUploader shared() {
+        if (shared == null) {
+            shared = new SnapshotUploader(UPLOAD_CONCURRENCY, UPLOAD_QUEUE_SIZE);
+        }
+        return shared;
+    }
+
+    /**
+     * Drains the process-wide uploader, if one was ever created, for up to
+     * {@code PERCY_UPLOAD_FLUSH_TIMEOUT} seconds.
+     *
+     * @return Number of uploads abandoned, see {@link #flushOnExit(long, TimeUnit)}.
+     */
+    static int flushSharedOnExit() {
+        SnapshotUploader uploader;
+        synchronized (SnapshotUploader.class) {
+            uploader = shared;
+        }
+        return uploader == null ? 0 : uploader.flushOnExit(UPLOAD_FLUSH_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues an upload, blocking while the queue is full.
+     *
+     * @param upload The upload to run on a background thread.
+     * @return A future completed with the upload's result, or exceptionally when the
+     *         upload throws or the caller is interrupted while waiting for room.
+     */
+    CompletableFuture<JSONObject> submit(Supplier<JSONObject> upload) {
+        CompletableFuture<JSONObject> future = new CompletableFuture<>();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        pending.add(future);
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(upload.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    pending.remove(future);
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(future);
+            permits.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for every upload queued so far to finish.
+     *
+     * @return {@code true} if the queue drained within the timeout.
+     */
+    boolean flush(long timeout, TimeUnit unit) {
+        CompletableFuture<?>[] inFlight = pending.toArray(new CompletableFuture<?>[0]);
+        if (inFlight.length == 0) { return true; }
+        try {
+            CompletableFuture.allOf(inFlight).get(timeout, unit);
+            return true;
+        } catch (ExecutionException e) {
+            // Failures are reported through each snapshot's own future
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #flush(long, TimeUnit)}, logging what it waits for and how many uploads
+     * it gave up on, for the shutdown hook.
+     *
+     * @return Number of uploads still pending when the timeout ran out.
+     */
+    int flushOnExit(long timeout, TimeUnit unit) {
+        int queued = pendingCount();
+        if (queued == 0) { return 0; }
+        Percy.log("Waiting up to " + unit.toSeconds(timeout) + "s for " + queued + " snapshot uploads before exit");
+        if (flush(timeout, unit)) { return 0; }
+        int abandoned = pendingCount();
+        if (abandoned > 0) {
+            Percy.log("Abandoned " + abandoned + " snapshot uploads still pending at exit"
+                    + " (raise PERCY_UPLOAD_FLUSH_TIMEOUT to wait longer)", "error");
+        }
+        return abandoned;
+    }
+
+    /**
+     * @return Number of uploads currently running or waiting.
+     */
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private static class UploadThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "percy-snapshot-upload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
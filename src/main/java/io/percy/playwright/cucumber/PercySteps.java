@@ -35,9 +35,9 @@ import java.util.*;
  * <h3>Setup in step definition glue:</h3>
  * <pre>
  * public class Hooks {
- *     private static Playwright playwright;
- *     private static Browser browser;
- *     private static Page page;
+ *     private Playwright playwright;
+ *     private Browser browser;
+ *     private Page page;
  *
  *     {@literal @}Before
  *     public void setUp() {
@@ -55,22 +55,51 @@ import java.util.*;
  *     }
  * }
  * </pre>
+ *
+ * <p>The page, Percy instance and regions are kept per scenario, so feature files can
+ * run in parallel with {@code cucumber.execution.parallel.enabled=true} as long as each
+ * scenario's hooks create their own page, as above.</p>
  */
 public class PercySteps {
 
-    private static Page page;
-    private static Percy percy;
-    private static List<Map<String, Object>> regions = new ArrayList<>();
+    /**
+     * The page, Percy instance and pending regions of the scenario running on this thread.
+     *
+     * <p>Cucumber runs every hook and step of a scenario on the same thread, also with
+     * {@code cucumber.execution.parallel.enabled=true}, so keeping the state per thread
+     * keeps scenarios that run in parallel apart.</p>
+     */
+    private static final ThreadLocal<ScenarioState> SCENARIO = ThreadLocal.withInitial(ScenarioState::new);
+
+    // Only touched by the thread running the scenario
+    static final class ScenarioState {
+        Page page;
+        Percy percy;
+        final List<Map<String, Object>> regions = new ArrayList<>();
+    }
+
+    static ScenarioState scenario() {
+        return SCENARIO.get();
+    }
 
     /**
-     * Set the Playwright Page instance for Percy to use.
+     * Set the Playwright Page instance for Percy to use in the current scenario.
      * Call this from your Cucumber hooks before using any Percy steps.
      *
+     * <p>Setting the page the scenario already uses keeps its Percy instance and regions;
+     * setting another page starts over with a new Percy instance and no regions.</p>
+     *
      * @param playwrightPage the Playwright Page instance
      */
     public static void setPage(Page playwrightPage) {
-        page = playwrightPage;
-        percy = new Percy(page);
+        ScenarioState state = scenario();
+        if (state.percy != null && state.page == playwrightPage) {
+            return;
+        }
+        state.page = playwrightPage;
+        state.regions.clear();
+        Percy percy = new Percy(playwrightPage);
+        state.percy = percy;
 
         // Identify as Cucumber wrapper in Percy build info
         String sdkVersion = Percy.getSdkVersion();
@@ -109,22 +138,20 @@ public class PercySteps {
     }
 
     /**
-     * Get the current Percy instance.
+     * Get the current scenario's Percy instance.
      *
      * @return the Percy instance, or null if not initialized
      */
     public static Percy getPercy() {
-        return percy;
+        return scenario().percy;
     }
 
     /**
-     * Reset the Percy instance and clear stored regions.
+     * Reset the current scenario's Percy instance and clear its stored regions.
      * Call this from your Cucumber hooks in teardown.
      */
     public static void reset() {
-        percy = null;
-        page = null;
-        regions.clear();
+        SCENARIO.remove();
     }
 
     // ------------------------------------------------------------------
@@ -133,12 +160,13 @@ public class PercySteps {
 
     @Given("I have a Percy instance")
     public void iHaveAPercyInstance() {
-        if (page == null) {
+        ScenarioState state = scenario();
+        if (state.page == null) {
             throw new IllegalStateException(
                 "Playwright Page not set. Call PercySteps.setPage(page) in your @Before hook.");
         }
-        if (percy == null) {
-            percy = new Percy(page);
+        if (state.percy == null) {
+            state.percy = new Percy(state.page);
         }
     }
 
@@ -147,7 +175,7 @@ public class PercySteps {
         Map<String, Object> params = new HashMap<>();
         params.put("algorithm", "ignore");
         params.put("elementCSS", cssSelector);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy ignore region with XPath {string}")
@@ -155,7 +183,7 @@ public class PercySteps {
         Map<String, Object> params = new HashMap<>();
         params.put("algorithm", "ignore");
         params.put("elementXpath", xpath);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy ignore region with bounding box {int}, {int}, {int}, {int}")
@@ -169,7 +197,7 @@ public class PercySteps {
         Map<String, Object> params = new HashMap<>();
         params.put("algorithm", "ignore");
         params.put("boundingBox", boundingBox);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy consider region with CSS selector {string}")
@@ -177,7 +205,7 @@ public class PercySteps {
         Map<String, Object> params = new HashMap<>();
         params.put("algorithm", "standard");
         params.put("elementCSS", cssSelector);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy consider region with CSS selector {string} and diff sensitivity {int}")
@@ -186,7 +214,7 @@ public class PercySteps {
         params.put("algorithm", "standard");
         params.put("elementCSS", cssSelector);
         params.put("diffSensitivity", sensitivity);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy intelliignore region with CSS selector {string}")
@@ -194,7 +222,7 @@ public class PercySteps {
         Map<String, Object> params = new HashMap<>();
         params.put("algorithm", "intelliignore");
         params.put("elementCSS", cssSelector);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy ignore region with CSS selector {string} and padding {int}")
@@ -203,7 +231,7 @@ public class PercySteps {
         params.put("algorithm", "ignore");
         params.put("elementCSS", cssSelector);
         params.put("padding", padding);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy ignore region with XPath {string} and padding {int}")
@@ -212,7 +240,7 @@ public class PercySteps {
         params.put("algorithm", "ignore");
         params.put("elementXpath", xpath);
         params.put("padding", padding);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy consider region with XPath {string}")
@@ -220,7 +248,7 @@ public class PercySteps {
         Map<String, Object> params = new HashMap<>();
         params.put("algorithm", "standard");
         params.put("elementXpath", xpath);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy consider region with XPath {string} and diff sensitivity {int}")
@@ -229,7 +257,7 @@ public class PercySteps {
         params.put("algorithm", "standard");
         params.put("elementXpath", xpath);
         params.put("diffSensitivity", sensitivity);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I create a Percy intelliignore region with XPath {string}")
@@ -237,12 +265,12 @@ public class PercySteps {
         Map<String, Object> params = new HashMap<>();
         params.put("algorithm", "intelliignore");
         params.put("elementXpath", xpath);
-        regions.add(percy.createRegion(params));
+        scenario().regions.add(getPercy().createRegion(params));
     }
 
     @Given("I clear Percy regions")
     public void iClearPercyRegions() {
-        regions.clear();
+        scenario().regions.clear();
     }
 
     // ------------------------------------------------------------------
@@ -251,115 +279,106 @@ public class PercySteps {
 
     @When("I take a Percy snapshot named {string}")
     public void iTakeSnapshot(String name) {
-        percy.snapshot(name);
+        getPercy().snapshot(name);
     }
 
     @When("I take a Percy snapshot named {string} with widths {string}")
     public void iTakeSnapshotWithWidths(String name, String widths) {
         Map<String, Object> options = new HashMap<>();
         options.put("widths", parseWidths(widths));
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with min height {int}")
     public void iTakeSnapshotWithMinHeight(String name, int minHeight) {
         Map<String, Object> options = new HashMap<>();
         options.put("minHeight", minHeight);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with Percy CSS {string}")
     public void iTakeSnapshotWithCSS(String name, String percyCSS) {
         Map<String, Object> options = new HashMap<>();
         options.put("percyCSS", percyCSS);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with scope {string}")
     public void iTakeSnapshotWithScope(String name, String scope) {
         Map<String, Object> options = new HashMap<>();
         options.put("scope", scope);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with layout mode")
     public void iTakeSnapshotWithLayout(String name) {
         Map<String, Object> options = new HashMap<>();
         options.put("enableLayout", true);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with JavaScript enabled")
     public void iTakeSnapshotWithJS(String name) {
         Map<String, Object> options = new HashMap<>();
         options.put("enableJavaScript", true);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with labels {string}")
     public void iTakeSnapshotWithLabels(String name, String labels) {
         Map<String, Object> options = new HashMap<>();
         options.put("labels", labels);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with test case {string}")
     public void iTakeSnapshotWithTestCase(String name, String testCase) {
         Map<String, Object> options = new HashMap<>();
         options.put("testCase", testCase);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with Shadow DOM disabled")
     public void iTakeSnapshotWithShadowDomDisabled(String name) {
         Map<String, Object> options = new HashMap<>();
         options.put("disableShadowDom", true);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with responsive capture")
     public void iTakeSnapshotWithResponsiveCapture(String name) {
         Map<String, Object> options = new HashMap<>();
         options.put("responsiveSnapshotCapture", true);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with sync")
     public void iTakeSnapshotWithSync(String name) {
         Map<String, Object> options = new HashMap<>();
         options.put("sync", true);
-        percy.snapshot(name, options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with regions")
     public void iTakeSnapshotWithRegions(String name) {
         Map<String, Object> options = new HashMap<>();
-        if (!regions.isEmpty()) {
-            options.put("regions", new ArrayList<>(regions));
-            regions.clear();
-        }
-        percy.snapshot(name, options);
+        takeRegions(options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with widths {string} and regions")
     public void iTakeSnapshotWithWidthsAndRegions(String name, String widths) {
         Map<String, Object> options = new HashMap<>();
         options.put("widths", parseWidths(widths));
-        if (!regions.isEmpty()) {
-            options.put("regions", new ArrayList<>(regions));
-            regions.clear();
-        }
-        percy.snapshot(name, options);
+        takeRegions(options);
+        getPercy().snapshot(name, options);
     }
 
     @When("I take a Percy snapshot named {string} with options:")
     public void iTakeSnapshotWithOptions(String name, Map<String, String> optionsTable) {
         Map<String, Object> options = buildOptions(optionsTable);
-        if (!regions.isEmpty()) {
-            options.put("regions", new ArrayList<>(regions));
-            regions.clear();
-        }
-        percy.snapshot(name, options);
+        takeRegions(options);
+        getPercy().snapshot(name, options);
     }
 
     // ------------------------------------------------------------------
@@ -369,7 +388,7 @@ public class PercySteps {
     @When("I take a Percy screenshot named {string}")
     public void iTakeScreenshot(String name) {
         try {
-            percy.screenshot(name);
+            getPercy().screenshot(name);
         } catch (Exception e) {
             throw new RuntimeException("Percy screenshot failed: " + e.getMessage(), e);
         }
@@ -378,12 +397,9 @@ public class PercySteps {
     @When("I take a Percy screenshot named {string} with regions")
     public void iTakeScreenshotWithRegions(String name) {
         Map<String, Object> options = new HashMap<>();
-        if (!regions.isEmpty()) {
-            options.put("regions", new ArrayList<>(regions));
-            regions.clear();
-        }
+        takeRegions(options);
         try {
-            percy.screenshot(name, options);
+            getPercy().screenshot(name, options);
         } catch (Exception e) {
             throw new RuntimeException("Percy screenshot failed: " + e.getMessage(), e);
         }
@@ -392,12 +408,9 @@ public class PercySteps {
     @When("I take a Percy screenshot named {string} with options:")
     public void iTakeScreenshotWithOptions(String name, Map<String, String> optionsTable) {
         Map<String, Object> options = buildOptions(optionsTable);
-        if (!regions.isEmpty()) {
-            options.put("regions", new ArrayList<>(regions));
-            regions.clear();
-        }
+        takeRegions(options);
         try {
-            percy.screenshot(name, options);
+            getPercy().screenshot(name, options);
         } catch (Exception e) {
             throw new RuntimeException("Percy screenshot failed: " + e.getMessage(), e);
         }
@@ -409,7 +422,7 @@ public class PercySteps {
 
     @Then("Percy should be enabled")
     public void percyShouldBeEnabled() {
-        if (percy == null) {
+        if (getPercy() == null) {
             throw new IllegalStateException("Percy instance not initialized.");
         }
     }
@@ -418,6 +431,15 @@ public class PercySteps {
     // Helpers
     // ------------------------------------------------------------------
 
+    // Moves the pending regions into the snapshot options
+    private static void takeRegions(Map<String, Object> options) {
+        List<Map<String, Object>> regions = scenario().regions;
+        if (!regions.isEmpty()) {
+            options.put("regions", new ArrayList<>(regions));
+            regions.clear();
+        }
+    }
+
     private static List<Integer> parseWidths(String widths) {
         List<Integer> result = new ArrayList<>();
         for (String w : widths.split(",")) {
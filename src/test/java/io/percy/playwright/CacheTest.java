@@ -48,4 +48,16 @@ public class CacheTest {
         assertNotNull(cache);
         assertNotNull(Cache.CACHE_MAP);
     }
+
+    @Test
+    void cacheMapKeepsItsDeclaredTypeAndSharesEntriesWithGetOrCompute() throws Exception {
+        // Code compiled against the field's old Map type must still link
+        assertEquals(Map.class, Cache.class.getField("CACHE_MAP").getType());
+
+        Cache.CACHE_MAP.clear();
+        assertEquals("computed", Cache.getOrCompute("shared-key", () -> "computed"));
+        assertEquals("computed", Cache.CACHE_MAP.get("shared-key"));
+        assertEquals("computed", Cache.getOrCompute("shared-key", () -> "again"));
+        Cache.CACHE_MAP.clear();
+    }
 }
@@ -0,0 +1,160 @@
+package io.percy.playwright;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CliCache}: process-wide memo of healthcheck and widths-config.
+ */
+public class CliCacheTest {
+
+    @AfterEach
+    public void invalidate() {
+        CliCache.invalidate();
+    }
+
+    private static List<Map<String, Object>> widths(int... values) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int value : values) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("width", value);
+            result.add(item);
+        }
+        return result;
+    }
+
+    @Test
+    public void healthcheckIsProbedOncePerAddress() {
+        AtomicInteger probes = new AtomicInteger();
+        CliCache.Healthcheck healthy = new CliCache.Healthcheck(true, "web", null, false, "1.27.0");
+
+        assertSame(healthy, CliCache.healthcheck("http://a", () -> { probes.incrementAndGet(); return healthy; }));
+        assertSame(healthy, CliCache.healthcheck("http://a", () -> { probes.incrementAndGet(); return healthy; }));
+        assertEquals(1, probes.get());
+
+        CliCache.healthcheck("http://b", () -> { probes.incrementAndGet(); return CliCache.Healthcheck.DISABLED; });
+        assertEquals(2, probes.get());
+    }
+
+    @Test
+    public void disabledHealthcheckIsCachedUntilInvalidated() {
+        AtomicInteger probes = new AtomicInteger();
+        assertFalse(CliCache.healthcheck("http://a",
+                () -> { probes.incrementAndGet(); return CliCache.Healthcheck.DISABLED; }).enabled);
+        assertFalse(CliCache.healthcheck("http://a",
+                () -> { probes.incrementAndGet(); return new CliCache.Healthcheck(true, null, null, false, "1.27.0"); }).enabled);
+        assertEquals(1, probes.get());
+
+        CliCache.invalidate();
+        assertTrue(CliCache.healthcheck("http://a",
+                () -> new CliCache.Healthcheck(true, null, null, false, "1.27.0")).enabled);
+    }
+
+    @Test
+    public void rejectedGzipIsNoLongerAdvertisedForThatAddress() {
+        AtomicInteger probes = new AtomicInteger();
+        java.util.function.Supplier<CliCache.Healthcheck> gzip = () -> {
+            probes.incrementAndGet();
+            return new CliCache.Healthcheck(true, "web", null, true, "1.27.0", true);
+        };
+        assertTrue(CliCache.healthcheck("http://a", gzip).acceptsGzip);
+
+        CliCache.rejectGzip("http://a");
+        CliCache.Healthcheck after = CliCache.healthcheck("http://a", gzip);
+        assertFalse(after.acceptsGzip);
+        assertTrue(after.enabled);
+        assertTrue(after.acceptsResourceRefs);
+        assertEquals(1, probes.get());
+        assertTrue(CliCache.healthcheck("http://b", gzip).acceptsGzip);
+
+        CliCache.invalidate();
+        assertTrue(CliCache.healthcheck("http://a", gzip).acceptsGzip);
+    }
+
+    @Test
+    public void configCopyIsIndependentOfCachedConfig() {
+        JSONObject config = new JSONObject("{\"snapshot\":{\"minHeight\":1024}}");
+        CliCache.Healthcheck result = new CliCache.Healthcheck(true, "web", config, true, "1.27.0");
+
+        JSONObject copy = result.configCopy();
+        copy.getJSONObject("snapshot").put("minHeight", 1);
+
+        assertEquals(1024, result.configCopy().getJSONObject("snapshot").getInt("minHeight"));
+        assertNull(CliCache.Healthcheck.DISABLED.configCopy());
+    }
+
+    @Test
+    public void concurrentMissesShareOneProbe() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                CliCache.healthcheck("http://a", () -> {
+                    probes.incrementAndGet();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return CliCache.Healthcheck.DISABLED;
+                });
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertEquals(1, probes.get());
+    }
+
+    @Test
+    public void widthsAreMemoizedPerUrlAndReturnedAsCopies() {
+        AtomicInteger fetches = new AtomicInteger();
+
+        List<Map<String, Object>> first = CliCache.widths("http://a/percy/widths-config?widths=375",
+                () -> { fetches.incrementAndGet(); return widths(375); });
+        first.get(0).put("width", 9999);
+        first.clear();
+
+        List<Map<String, Object>> second = CliCache.widths("http://a/percy/widths-config?widths=375",
+                () -> { fetches.incrementAndGet(); return widths(1); });
+        assertEquals(1, fetches.get());
+        assertEquals(375, second.get(0).get("width"));
+
+        CliCache.widths("http://a/percy/widths-config", () -> { fetches.incrementAndGet(); return widths(1280); });
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void failedWidthsLookupIsNotCached() {
+        AtomicInteger fetches = new AtomicInteger();
+        assertThrows(RuntimeException.class, () -> CliCache.widths("http://a/percy/widths-config", () -> {
+            fetches.incrementAndGet();
+            throw new RuntimeException("Failed to fetch widths-config (HTTP 404)");
+        }));
+
+        List<Map<String, Object>> result = CliCache.widths("http://a/percy/widths-config",
+                () -> { fetches.incrementAndGet(); return widths(1280); });
+        assertEquals(2, fetches.get());
+        assertEquals(1280, result.get(0).get("width"));
+    }
+}
@@ -0,0 +1,39 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ContentHash}.
+ */
+public class ContentHashTest {
+
+    private static Map<String, Object> resource(String url, String content) {
+        Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("url", url);
+        resource.put("content", content);
+        return resource;
+    }
+
+    @Test
+    public void hashDependsOnContentOnly() {
+        assertEquals(ContentHash.sha256(resource("/a", "AAAA")), ContentHash.sha256(resource("/a", "AAAA")));
+        assertNotEquals(ContentHash.sha256(resource("/a", "AAAA")), ContentHash.sha256(resource("/a", "AAAB")));
+        assertNotEquals(ContentHash.sha256(Arrays.asList(1, 2)), ContentHash.sha256(Arrays.asList(2, 1)));
+    }
+
+    @Test
+    public void hashIsHexSha256OfTheJson() {
+        // SHA-256 of the JSON text "\"abc\""
+        assertEquals("6cc43f858fbb763301637b5af970e2a46b46f461f27e5a0f41e009c59b827b25",
+                ContentHash.sha256("abc"));
+        assertEquals(64, ContentHash.sha256("é😀").length());
+        assertEquals(ContentHash.sha256(new HashMap<>()), ContentHash.sha256(new LinkedHashMap<>()));
+    }
+}
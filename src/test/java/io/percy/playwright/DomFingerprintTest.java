@@ -0,0 +1,59 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link DomFingerprint}: reuse only across an unchanged fingerprint.
+ */
+public class DomFingerprintTest {
+
+    private static Map<String, Object> dom(String html) {
+        Map<String, Object> dom = new HashMap<>();
+        dom.put("html", html);
+        return dom;
+    }
+
+    @Test
+    public void reusesACopyWhenTheFingerprintMatches() {
+        DomFingerprint fingerprints = new DomFingerprint();
+        Map<String, Object> first = dom("<html></html>");
+        assertNull(fingerprints.reuse("abc:10"));
+
+        fingerprints.remember("abc:10", first);
+        Map<String, Object> reused = fingerprints.reuse("abc:10");
+        assertEquals(first, reused);
+        assertNotSame(first, reused);
+
+        // Annotating the copy leaves the remembered DOM alone
+        reused.put("width", 1280);
+        assertFalse(fingerprints.reuse("abc:10").containsKey("width"));
+    }
+
+    @Test
+    public void changedFingerprintIsNotReused() {
+        DomFingerprint fingerprints = new DomFingerprint();
+        fingerprints.remember("abc:10", dom("a"));
+        assertNull(fingerprints.reuse("def:11"));
+
+        fingerprints.remember("def:11", dom("b"));
+        assertEquals("b", fingerprints.reuse("def:11").get("html"));
+        assertNull(fingerprints.reuse("abc:10"));
+    }
+
+    @Test
+    public void missingFingerprintNeverMatches() {
+        DomFingerprint fingerprints = new DomFingerprint();
+        fingerprints.remember(null, dom("a"));
+        assertNull(fingerprints.reuse(null));
+
+        // An unfingerprintable width also forgets the previous DOM
+        fingerprints.remember("abc:10", dom("a"));
+        fingerprints.remember(null, dom("b"));
+        assertNull(fingerprints.reuse("abc:10"));
+    }
+}
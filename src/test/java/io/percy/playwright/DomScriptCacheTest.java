@@ -0,0 +1,132 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link DomScriptCache}: JVM-wide and on-disk dom.js caching.
+ */
+public class DomScriptCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    /** Records the If-None-Match value of every fetch and answers with a fixed result. */
+    private static class RecordingFetcher implements DomScriptCache.Fetcher {
+        final List<String> etags = new ArrayList<>();
+        DomScriptCache.Download answer;
+
+        RecordingFetcher(DomScriptCache.Download answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public DomScriptCache.Download fetch(String etag) {
+            etags.add(etag);
+            return answer;
+        }
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void downloadsOncePerServerAndVersion() throws Exception {
+        DomScriptCache cache = new DomScriptCache(null);
+        RecordingFetcher fetcher = new RecordingFetcher(new DomScriptCache.Download("window.PercyDOM = {};", null));
+
+        assertEquals("window.PercyDOM = {};", cache.get("http://a", "1.27.0", fetcher));
+        assertEquals("window.PercyDOM = {};", cache.get("http://a", "1.27.0", fetcher));
+        assertEquals(1, fetcher.etags.size());
+
+        cache.get("http://a", "1.28.0", fetcher);
+        cache.get("http://b", "1.27.0", fetcher);
+        assertEquals(3, fetcher.etags.size());
+    }
+
+    @Test
+    public void invalidateForcesADownload() throws Exception {
+        DomScriptCache cache = new DomScriptCache(null);
+        RecordingFetcher fetcher = new RecordingFetcher(new DomScriptCache.Download("v1", null));
+        cache.get("http://a", "1.27.0", fetcher);
+
+        fetcher.answer = new DomScriptCache.Download("v2", null);
+        cache.invalidate();
+
+        assertEquals("v2", cache.get("http://a", "1.27.0", fetcher));
+    }
+
+    @Test
+    public void failedDownloadIsNotCached() throws Exception {
+        DomScriptCache cache = new DomScriptCache(null);
+        AtomicInteger attempts = new AtomicInteger();
+        DomScriptCache.Fetcher failing = etag -> {
+            attempts.incrementAndGet();
+            throw new RuntimeException("Failed with HTTP error code: 500");
+        };
+
+        assertThrows(RuntimeException.class, () -> cache.get("http://a", "1.27.0", failing));
+        assertThrows(RuntimeException.class, () -> cache.get("http://a", "1.27.0", failing));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void diskCacheIsSharedBetweenCacheInstances() throws Exception {
+        RecordingFetcher fetcher = new RecordingFetcher(new DomScriptCache.Download("dom v1", null));
+        new DomScriptCache(tempDir).get("http://a", "1.27.0", fetcher);
+        assertEquals("dom v1", read(tempDir.resolve("dom-1.27.0.js")));
+
+        // A second JVM (simulated by a fresh instance) trusts the version-keyed file
+        RecordingFetcher second = new RecordingFetcher(new DomScriptCache.Download("unused", null));
+        assertEquals("dom v1", new DomScriptCache(tempDir).get("http://a", "1.27.0", second));
+        assertTrue(second.etags.isEmpty());
+    }
+
+    @Test
+    public void diskCacheRevalidatesWithEtag() throws Exception {
+        RecordingFetcher fetcher = new RecordingFetcher(new DomScriptCache.Download("dom v1", "\"abc\""));
+        new DomScriptCache(tempDir).get("http://a", "1.27.0", fetcher);
+        assertEquals("\"abc\"", read(tempDir.resolve("dom-1.27.0.etag")));
+
+        RecordingFetcher notModified = new RecordingFetcher(DomScriptCache.Download.NOT_MODIFIED);
+        assertEquals("dom v1", new DomScriptCache(tempDir).get("http://a", "1.27.0", notModified));
+        assertEquals("\"abc\"", notModified.etags.get(0));
+
+        RecordingFetcher changed = new RecordingFetcher(new DomScriptCache.Download("dom v2", null));
+        assertEquals("dom v2", new DomScriptCache(tempDir).get("http://a", "1.27.0", changed));
+        assertEquals("dom v2", read(tempDir.resolve("dom-1.27.0.js")));
+        assertFalse(Files.exists(tempDir.resolve("dom-1.27.0.etag")));
+    }
+
+    @Test
+    public void unusableDirectoryFallsBackToDownload() throws Exception {
+        Path file = Files.createFile(tempDir.resolve("not-a-directory"));
+        RecordingFetcher fetcher = new RecordingFetcher(new DomScriptCache.Download("dom", null));
+
+        assertEquals("dom", new DomScriptCache(file).get("http://a", "1.27.0", fetcher));
+        assertEquals(1, fetcher.etags.size());
+    }
+
+    @Test
+    public void versionIsSanitizedForTheFileName() throws Exception {
+        RecordingFetcher fetcher = new RecordingFetcher(new DomScriptCache.Download("dom", null));
+        new DomScriptCache(tempDir).get("http://a", "1.0/../x", fetcher);
+        assertTrue(Files.exists(tempDir.resolve("dom-1.0_.._x.js")));
+    }
+
+    @Test
+    public void sharedCacheIsASingleton() {
+        assertSame(DomScriptCache.shared(), DomScriptCache.shared());
+    }
+}
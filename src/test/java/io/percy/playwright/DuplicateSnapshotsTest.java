@@ -0,0 +1,92 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link DuplicateSnapshots}: the name to content-hash index.
+ */
+public class DuplicateSnapshotsTest {
+
+    private static Map<String, Object> payload(String html) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("url", "http://example.com");
+        payload.put("domSnapshot", html);
+        return payload;
+    }
+
+    @BeforeEach
+    public void clearIndex() {
+        DuplicateSnapshots.clear();
+    }
+
+    private static Map<String, Object> dom(String html, Object diagnostics) {
+        Map<String, Object> dom = new HashMap<>();
+        dom.put("html", html);
+        dom.put("readiness_diagnostics", diagnostics);
+        return dom;
+    }
+
+    private static String hash(String html) {
+        return DuplicateSnapshots.fingerprint(payload(html));
+    }
+
+    @Test
+    public void classifiesRepostsByContent() {
+        assertEquals(DuplicateSnapshots.Outcome.NEW, DuplicateSnapshots.check("Home", hash("<a/>")));
+        DuplicateSnapshots.record("Home", hash("<a/>"));
+        assertEquals(DuplicateSnapshots.Outcome.DUPLICATE, DuplicateSnapshots.check("Home", hash("<a/>")));
+        assertEquals(DuplicateSnapshots.Outcome.CHANGED, DuplicateSnapshots.check("Home", hash("<b/>")));
+        // The latest recorded content is what later posts are compared against
+        DuplicateSnapshots.record("Home", hash("<b/>"));
+        assertEquals(DuplicateSnapshots.Outcome.DUPLICATE, DuplicateSnapshots.check("Home", hash("<b/>")));
+        assertEquals(DuplicateSnapshots.Outcome.NEW, DuplicateSnapshots.check("About", hash("<b/>")));
+    }
+
+    @Test
+    public void checkingDoesNotRecord() {
+        DuplicateSnapshots.check("Home", hash("<a/>"));
+        assertEquals(DuplicateSnapshots.Outcome.NEW, DuplicateSnapshots.check("Home", hash("<a/>")));
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        DuplicateSnapshots.record("Home", hash("<a/>"));
+        DuplicateSnapshots.clear();
+        assertEquals(DuplicateSnapshots.Outcome.NEW, DuplicateSnapshots.check("Home", hash("<a/>")));
+    }
+
+    @Test
+    public void fingerprintIgnoresValuesThatChangeOnEveryCapture() {
+        Map<String, Object> first = new HashMap<>();
+        first.put("url", "http://example.com");
+        first.put("domSnapshot", dom("<img data-percy-element-id=\"_abc123\" src=\"a.png\">", "{\"total_ms\":120}"));
+        Map<String, Object> second = new HashMap<>();
+        second.put("url", "http://example.com");
+        second.put("domSnapshot", dom("<img data-percy-element-id=\"_xyz789\" src=\"a.png\">", "{\"total_ms\":95}"));
+        assertEquals(DuplicateSnapshots.fingerprint(first), DuplicateSnapshots.fingerprint(second));
+
+        // Responsive captures are normalized per width
+        first.put("domSnapshot", Arrays.asList(dom("<p data-percy-element-id=\"_1\">a</p>", 1)));
+        second.put("domSnapshot", Arrays.asList(dom("<p data-percy-element-id=\"_2\">a</p>", 2)));
+        assertEquals(DuplicateSnapshots.fingerprint(first), DuplicateSnapshots.fingerprint(second));
+
+        second.put("domSnapshot", Arrays.asList(dom("<p data-percy-element-id=\"_2\">b</p>", 2)));
+        assertNotEquals(DuplicateSnapshots.fingerprint(first), DuplicateSnapshots.fingerprint(second));
+    }
+
+    @Test
+    public void onlyWarnAndSkipTrackSnapshots() {
+        assertTrue(DuplicateSnapshots.isTracking("warn"));
+        assertTrue(DuplicateSnapshots.isTracking("SKIP"));
+        assertFalse(DuplicateSnapshots.isTracking("upload"));
+        assertFalse(DuplicateSnapshots.isTracking("bogus"));
+        assertFalse(DuplicateSnapshots.isTracking(null));
+    }
+}
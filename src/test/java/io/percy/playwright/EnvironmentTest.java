@@ -44,4 +44,21 @@ public class EnvironmentTest {
         assertNotNull(Environment.getSdkVersion());
         assertFalse(Environment.getSdkVersion().isEmpty());
     }
+
+    @Test
+    public void parseIntReturnsValueWhenNumeric() {
+        assertEquals(12, Environment.parseInt(" 12 ", 3));
+    }
+
+    @Test
+    public void parseIntFallsBackWhenUnsetOrInvalid() {
+        assertEquals(3, Environment.parseInt(null, 3));
+        assertEquals(3, Environment.parseInt("", 3));
+        assertEquals(3, Environment.parseInt("many", 3));
+    }
+
+    @Test
+    public void getIntEnvFallsBackWhenVariableMissing() {
+        assertEquals(7, Environment.getIntEnv("PERCY_SOME_UNSET_TEST_VARIABLE", 7));
+    }
 }
@@ -0,0 +1,146 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ExpiringCache}: TTL and size eviction, single-flight loading and counters.
+ */
+public class ExpiringCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private ExpiringCache<String, String> cache(int maxSize, long ttlNanos) {
+        return new ExpiringCache<>(maxSize, ttlNanos, now::get);
+    }
+
+    @Test
+    public void entriesExpireAfterTheirTtl() {
+        ExpiringCache<String, String> cache = cache(10, 100);
+        cache.put("a", "1");
+        now.set(99);
+        assertEquals("1", cache.get("a"));
+        assertTrue(cache.containsKey("a"));
+
+        now.set(100);
+        assertNull(cache.get("a"));
+        assertFalse(cache.containsKey("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void zeroTtlKeepsEntriesUntilEvictedForSpace() {
+        ExpiringCache<String, String> cache = cache(10, 0);
+        cache.put("a", "1");
+        now.set(Long.MAX_VALUE);
+        assertEquals("1", cache.get("a"));
+    }
+
+    @Test
+    public void fullCacheEvictsTheLeastRecentlyUsedEntry() {
+        ExpiringCache<String, String> cache = cache(2, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        // Reading "a" makes "b" the least recently used
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.containsKey("a"));
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("c"));
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void countsHitsAndMisses() throws Exception {
+        ExpiringCache<String, String> cache = cache(10, 0);
+        assertNull(cache.get("a"));
+        assertEquals("1", cache.getOrCompute("a", () -> "1"));
+        assertEquals("1", cache.getOrCompute("a", () -> "2"));
+        assertEquals("1", cache.get("a"));
+
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        ExpiringCache<String, String> cache = cache(10, 0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(pool.submit(() -> cache.getOrCompute("session", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "details";
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(pool.submit(() -> cache.getOrCompute("session", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("details", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedLoadIsRethrownAndNotCached() throws Exception {
+        ExpiringCache<String, String> cache = cache(10, 0);
+        IllegalStateException boom = new IllegalStateException("executor boom");
+        assertSame(boom, assertThrows(IllegalStateException.class,
+                () -> cache.getOrCompute("a", () -> { throw boom; })));
+        assertFalse(cache.containsKey("a"));
+
+        // A null result is returned but not cached either
+        assertNull(cache.getOrCompute("a", () -> null));
+        assertEquals("1", cache.getOrCompute("a", () -> "1"));
+    }
+
+    @Test
+    public void mapViewIsASnapshotOfLiveEntries() {
+        ExpiringCache<String, String> cache = cache(10, 100);
+        cache.put("a", "1");
+        now.set(50);
+        cache.put("b", "2");
+        now.set(120);
+
+        Map<String, String> copy = new java.util.HashMap<>(cache);
+        assertEquals(1, copy.size());
+        assertEquals("2", copy.get("b"));
+        assertThrows(UnsupportedOperationException.class, () -> cache.entrySet().clear());
+
+        assertEquals("2", cache.remove("b"));
+        assertNull(cache.remove("b"));
+        cache.put("c", "3");
+        cache.clear();
+        assertTrue(cache.isEmpty());
+        assertThrows(NullPointerException.class, () -> cache.put("d", null));
+    }
+}
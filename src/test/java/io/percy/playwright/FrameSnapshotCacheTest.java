@@ -0,0 +1,61 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FrameSnapshotCache}: one serialization per URL and fingerprint.
+ */
+public class FrameSnapshotCacheTest {
+
+    private static Supplier<Map<String, Object>> serializer(AtomicInteger calls) {
+        return () -> {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("html", "<frame " + calls.incrementAndGet() + "/>");
+            return snapshot;
+        };
+    }
+
+    @Test
+    public void serializesOncePerUrlAndFingerprint() {
+        FrameSnapshotCache cache = new FrameSnapshotCache();
+        AtomicInteger calls = new AtomicInteger();
+
+        Map<String, Object> first = cache.get("http://ads/a", "f:1", serializer(calls));
+        assertSame(first, cache.get("http://ads/a", "f:1", serializer(calls)));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.hits());
+
+        // Changed content or another URL is serialized again
+        cache.get("http://ads/a", "f:2", serializer(calls));
+        cache.get("http://ads/b", "f:1", serializer(calls));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void unknownFingerprintAlwaysSerializes() {
+        FrameSnapshotCache cache = new FrameSnapshotCache();
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("http://ads/a", null, serializer(calls));
+        cache.get("http://ads/a", null, serializer(calls));
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    public void failedSerializationIsNotCached() {
+        FrameSnapshotCache cache = new FrameSnapshotCache();
+        assertNull(cache.get("http://ads/a", "f:1", () -> null));
+
+        AtomicInteger calls = new AtomicInteger();
+        assertNotNull(cache.get("http://ads/a", "f:1", serializer(calls)));
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,109 @@
+package io.percy.playwright;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link HttpTransport}: the shared, pooled client used for CLI calls.
+ */
+public class HttpTransportTest {
+
+    private static HttpServer server;
+    // Client-side port of every request the stub received; equal ports mean the
+    // same TCP connection was reused.
+    private static final List<Integer> REMOTE_PORTS = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    public static void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            REMOTE_PORTS.add(exchange.getRemoteAddress().getPort());
+            byte[] out = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, out.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(out);
+            }
+        });
+        server.start();
+    }
+
+    @AfterAll
+    public static void stopStub() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    public void clientIsSharedAcrossCalls() {
+        assertSame(HttpTransport.client(), HttpTransport.client());
+    }
+
+    @Test
+    public void consecutiveRequestsReuseThePooledConnection() throws Exception {
+        REMOTE_PORTS.clear();
+        CloseableHttpClient client = HttpTransport.client();
+        for (int i = 0; i < 3; i++) {
+            HttpGet get = new HttpGet(url("/percy/healthcheck"));
+            get.setConfig(HttpTransport.DEFAULT_CONFIG);
+            try (CloseableHttpResponse response = client.execute(get)) {
+                assertEquals(200, response.getStatusLine().getStatusCode());
+                EntityUtils.consume(response.getEntity());
+            }
+        }
+
+        assertEquals(3, REMOTE_PORTS.size());
+        assertEquals(1, REMOTE_PORTS.stream().distinct().count(),
+                "Expected all requests on one keep-alive connection but saw ports " + REMOTE_PORTS);
+
+        PoolStats stats = HttpTransport.stats();
+        assertNotNull(stats);
+        assertEquals(0, stats.getLeased());
+        assertTrue(stats.getAvailable() >= 1);
+    }
+
+    @Test
+    public void shutdownReleasesClientAndNextCallBuildsANewOne() {
+        CloseableHttpClient before = HttpTransport.client();
+        HttpTransport.shutdown();
+        assertNull(HttpTransport.stats());
+
+        CloseableHttpClient after = HttpTransport.client();
+        assertNotSame(before, after);
+        assertNotNull(HttpTransport.stats());
+    }
+
+    @Test
+    public void requestConfigsCarryEndpointTimeouts() {
+        assertEquals(600000, HttpTransport.SNAPSHOT_CONFIG.getSocketTimeout());
+        assertEquals(30000, HttpTransport.WIDTHS_CONFIG.getConnectTimeout());
+        assertEquals(1000, HttpTransport.LOG_CONFIG.getSocketTimeout());
+    }
+
+    @Test
+    public void everyRequestConfigBoundsTheConnectionLeaseWait() {
+        assertEquals(1000, HttpTransport.LOG_CONFIG.getConnectionRequestTimeout());
+        assertEquals(10000, HttpTransport.DEFAULT_CONFIG.getConnectionRequestTimeout());
+        assertEquals(30000, HttpTransport.WIDTHS_CONFIG.getConnectionRequestTimeout());
+        assertEquals(600000, HttpTransport.SNAPSHOT_CONFIG.getConnectionRequestTimeout());
+    }
+}
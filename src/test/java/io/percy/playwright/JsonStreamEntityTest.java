@@ -0,0 +1,170 @@
+package io.percy.playwright;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link JsonStreamEntity}: streamed JSON request bodies.
+ */
+public class JsonStreamEntityTest {
+
+    enum Mode { FAST }
+
+    public static class Bean {
+        public String getLabel() { return "bean"; }
+    }
+
+    private static String render(Object value) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonStreamEntity.write(value, out);
+        return out.toString();
+    }
+
+    private static String body(JsonStreamEntity entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Object> domSnapshot() {
+        Map<String, Object> resource = new HashMap<>();
+        resource.put("url", "http://localhost/app.css");
+        resource.put("content", "body { content: \"\\u2603\"; }\n</script>");
+        resource.put("mimetype", "text/css");
+
+        Map<String, Object> dom = new HashMap<>();
+        dom.put("html", "<html><body>Snowman ☃ \"quoted\"\ttabbed</body></html>");
+        dom.put("resources", new ArrayList<>(Arrays.asList(resource)));
+        dom.put("cookies", new ArrayList<>());
+        dom.put("width", 1280);
+        dom.put("scale", 1.5);
+        dom.put("fromCache", false);
+        return dom;
+    }
+
+    @Test
+    public void writesTheSameJsonAsJSONObject() throws Exception {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("name", "Snapshot");
+        payload.put("widths", Arrays.asList(375, 1280));
+        payload.put("domSnapshot", domSnapshot());
+
+        JSONObject expected = new JSONObject(payload);
+        JSONObject actual = new JSONObject(render(payload));
+
+        assertTrue(expected.similar(actual), "expected " + expected + " but got " + actual);
+    }
+
+    @Test
+    public void countsTheUtf8BytesOfTheLastWrite() throws Exception {
+        JsonStreamEntity entity = new JsonStreamEntity(domSnapshot());
+        assertEquals(0, entity.bytesWritten());
+
+        String json = body(entity);
+        // The snowman is three bytes in UTF-8
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, entity.bytesWritten());
+        body(entity);
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, entity.bytesWritten());
+    }
+
+    @Test
+    public void omitsNullMapValuesLikeJSONObject() throws Exception {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("kept", "yes");
+        payload.put("dropped", null);
+
+        assertEquals("{\"kept\":\"yes\"}", render(payload));
+    }
+
+    @Test
+    public void writesNullElementsInsideLists() throws Exception {
+        List<Object> values = new ArrayList<>();
+        values.add(null);
+        values.add(JSONObject.NULL);
+        values.add("x");
+
+        assertEquals("[null,null,\"x\"]", render(values));
+    }
+
+    @Test
+    public void writesScalarsArraysAndOrgJsonTypes() throws Exception {
+        assertEquals("null", render(null));
+        assertEquals("true", render(true));
+        assertEquals("42", render(42));
+        assertEquals("1.5", render(1.5d));
+        assertEquals("\"FAST\"", render(Mode.FAST));
+        assertEquals("[1,2]", render(new int[] {1, 2}));
+        assertEquals("[\"a\",\"b\"]", render(new String[] {"a", "b"}));
+        assertEquals("{\"k\":[1]}", render(new JSONObject().put("k", new JSONArray().put(1))));
+        assertEquals("{\"label\":\"bean\"}", render(new Bean()));
+    }
+
+    @Test
+    public void escapesStringsForJson() throws Exception {
+        String value = "line\n\"quote\" </tag>";
+        assertEquals(JSONObject.quote(value), render(value));
+    }
+
+    @Test
+    public void entityIsChunkedRepeatableJson() throws Exception {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("domSnapshot", domSnapshot());
+        JsonStreamEntity entity = new JsonStreamEntity(payload);
+
+        assertTrue(entity.isChunked());
+        assertTrue(entity.isRepeatable());
+        assertFalse(entity.isStreaming());
+        assertEquals(-1, entity.getContentLength());
+        assertTrue(entity.getContentType().getValue().startsWith("application/json"));
+
+        String first = body(entity);
+        assertEquals(first, body(entity));
+        assertTrue(new JSONObject(payload).similar(new JSONObject(first)));
+    }
+
+    @Test
+    public void getContentBuffersTheBody() throws Exception {
+        JsonStreamEntity entity = new JsonStreamEntity(new JSONObject().put("a", "b"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = entity.getContent()) {
+            byte[] chunk = new byte[64];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        }
+        assertEquals("{\"a\":\"b\"}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void estimateSizeTracksSerializedLength() throws Exception {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("domSnapshot", domSnapshot());
+        payload.put("array", new int[] {1, 2, 3});
+        payload.put("json", new JSONObject().put("k", "v"));
+        payload.put("skipped", null);
+
+        long estimate = JsonStreamEntity.estimateSize(payload);
+        int actual = render(payload).length();
+
+        // Close enough to drive the compression threshold
+        assertTrue(estimate > actual / 2 && estimate < actual * 2,
+                "estimate " + estimate + " too far from " + actual);
+        assertEquals(4, JsonStreamEntity.estimateSize(null));
+    }
+}
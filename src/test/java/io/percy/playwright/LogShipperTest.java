@@ -0,0 +1,182 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LogShipper}: buffered, batched log shipping to the CLI.
+ */
+public class LogShipperTest {
+
+    @Test
+    public void enqueueShipsInBackgroundAndFlushWaits() {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        LogShipper shipper = new LogShipper((message, level) -> sent.add(level + ":" + message), 10, 10);
+
+        shipper.enqueue("first", "info");
+        assertTrue(shipper.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("info:first"), sent);
+    }
+
+    @Test
+    public void consecutiveLinesOfTheSameLevelShareOneRequest() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch firstSend = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogShipper shipper = new LogShipper((message, level) -> {
+            sent.add(level + ":" + message);
+            firstSend.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10, 10);
+
+        // Hold the worker on the first line so the next ones pile up in one batch.
+        shipper.enqueue("warmup", "info");
+        assertTrue(firstSend.await(5, TimeUnit.SECONDS));
+        shipper.enqueue("a", "info");
+        shipper.enqueue("b", "info");
+        shipper.enqueue("c", "debug");
+        release.countDown();
+        assertTrue(shipper.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("info:warmup", "info:a\nb", "debug:c"), sent);
+    }
+
+    @Test
+    public void fullBufferDropsOldestLine() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch firstSend = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogShipper shipper = new LogShipper((message, level) -> {
+            sent.add(message);
+            firstSend.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 2, 10);
+
+        shipper.enqueue("busy", "error");
+        assertTrue(firstSend.await(5, TimeUnit.SECONDS));
+        shipper.enqueue("one", "info");
+        shipper.enqueue("two", "info");
+        shipper.enqueue("three", "info");
+        assertEquals(1, shipper.droppedCount());
+
+        release.countDown();
+        assertTrue(shipper.flush(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("busy", "two\nthree"), sent);
+    }
+
+    @Test
+    public void flushOnExitReportsLinesTheCliNeverGot() throws Exception {
+        assertNull(new LogShipper((message, level) -> { }, 2, 10).flushOnExit(1, TimeUnit.SECONDS));
+
+        CountDownLatch firstSend = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogShipper shipper = new LogShipper((message, level) -> {
+            firstSend.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 2, 10);
+
+        shipper.enqueue("busy", "error");
+        assertTrue(firstSend.await(5, TimeUnit.SECONDS));
+        shipper.enqueue("one", "info");
+        shipper.enqueue("two", "info");
+        shipper.enqueue("three", "info");
+        assertEquals("Log lines not sent to the CLI: 1 dropped (raise PERCY_LOG_BUFFER_SIZE to keep more),"
+                + " 2 still buffered at exit", shipper.flushOnExit(50, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertEquals("Log lines not sent to the CLI: 1 dropped (raise PERCY_LOG_BUFFER_SIZE to keep more)",
+                shipper.flushOnExit(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void senderFailureDoesNotStopTheShipper() {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        LogShipper shipper = new LogShipper((message, level) -> {
+            if ("boom".equals(message)) { throw new IllegalStateException("send failed"); }
+            sent.add(message);
+        }, 10, 1);
+
+        shipper.enqueue("boom", "info");
+        assertTrue(shipper.flush(5, TimeUnit.SECONDS));
+        shipper.enqueue("after", "info");
+        assertTrue(shipper.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("after"), sent);
+    }
+
+    @Test
+    public void flushTimesOutWhileSenderIsStuck() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        LogShipper shipper = new LogShipper((message, level) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10, 10);
+
+        shipper.enqueue("stuck", "info");
+        assertFalse(shipper.flush(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(shipper.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void flushReturnsFalseWhenInterrupted() {
+        CountDownLatch release = new CountDownLatch(1);
+        LogShipper shipper = new LogShipper((message, level) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10, 10);
+        shipper.enqueue("stuck", "info");
+        try {
+            Thread.currentThread().interrupt();
+            assertFalse(shipper.flush(5, TimeUnit.SECONDS));
+        } finally {
+            Thread.interrupted();
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void coalesceKeepsLevelBoundaries() {
+        List<LogShipper.Entry> batch = new ArrayList<>();
+        batch.add(new LogShipper.Entry("a", "info"));
+        batch.add(new LogShipper.Entry("b", "debug"));
+        batch.add(new LogShipper.Entry("c", "debug"));
+        batch.add(new LogShipper.Entry("d", "info"));
+
+        List<LogShipper.Entry> result = LogShipper.coalesce(batch);
+
+        assertEquals(3, result.size());
+        assertEquals("a", result.get(0).message);
+        assertEquals("b\nc", result.get(1).message);
+        assertEquals("debug", result.get(1).level);
+        assertEquals("d", result.get(2).message);
+        assertTrue(LogShipper.coalesce(new ArrayList<>()).isEmpty());
+    }
+}
@@ -175,17 +175,42 @@ public class PageMetadataTest {
     }
 
     @Test
-    public void getBrowserGuidReadsGuidFromFrameOwnerUsingBrowserFieldDescriptor() throws Exception {
-        // Mirrors production: the field DESCRIPTOR comes from the browser owner's
-        // superclass, but the VALUE is read from the frame owner instance.
-        FakeChannel browserOwner = new FakeChannel("browser-desc");
-        FakeChannel frameOwner = new FakeChannel("browser-guid-1");
+    public void getBrowserGuidReadsGuidFromBrowserOwner() throws Exception {
+        // The browser's own guid, so pages of one browser share cached session details.
+        FakeChannel browserOwner = new FakeChannel("browser-guid-1");
+        FakeChannel frameOwner = new FakeChannel("frame-guid-1");
         FakePageMetadata meta = new FakePageMetadata(
                 Mockito.mock(Page.class), new FakeChannel("p"), frameOwner, browserOwner);
         assertEquals("browser-guid-1", meta.getBrowserGuid());
         assertEquals("browser-guid-1", meta.getBrowserGuid());
     }
 
+    @Test
+    public void pagesOfOneBrowserShareSessionDetails() throws Exception {
+        Cache.CACHE_MAP.clear();
+        Page firstPage = Mockito.mock(Page.class);
+        Page secondPage = Mockito.mock(Page.class);
+        when(firstPage.evaluate(anyString(), anyString())).thenReturn("{\"hashed_id\":\"one-browser\"}");
+
+        FakeChannel browserOwner = new FakeChannel("browser-guid-shared-pages");
+        assertEquals("one-browser", new FakePageMetadata(
+                firstPage, new FakeChannel("p1"), new FakeChannel("f1"), browserOwner).getSessionId());
+        assertEquals("one-browser", new FakePageMetadata(
+                secondPage, new FakeChannel("p2"), new FakeChannel("f2"), browserOwner).getSessionId());
+        verify(secondPage, never()).evaluate(anyString(), anyString());
+    }
+
+    @Test
+    public void guidGetterIsResolvedOncePerChannelOwnerClass() throws Exception {
+        assertSame(PageMetadata.guidGetter(FakeChannel.class), PageMetadata.guidGetter(FakeChannel.class));
+        assertEquals("g-1", PageMetadata.readGuid(FakeChannel.class, new FakeChannel("g-1")));
+        assertEquals("g-2", PageMetadata.readGuid(FakeChannel.class, new FakeChannel("g-2")));
+
+        // A class without the field keeps failing rather than caching a bad getter
+        assertThrows(IllegalStateException.class, () -> PageMetadata.guidGetter(Object.class));
+        assertThrows(IllegalStateException.class, () -> PageMetadata.guidGetter(String.class));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void getSessionDetailsEvaluatesAndCachesSessionDetails() throws Exception {
@@ -210,6 +235,36 @@ public class PageMetadataTest {
         verify(mockPage, times(1)).evaluate(anyString(), anyString());
     }
 
+    @Test
+    public void concurrentSessionDetailLookupsShareOneExecutorCall() throws Exception {
+        Cache.CACHE_MAP.clear();
+        Page mockPage = Mockito.mock(Page.class);
+        java.util.concurrent.CountDownLatch calling = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch answer = new java.util.concurrent.CountDownLatch(1);
+        when(mockPage.evaluate(anyString(), anyString())).thenAnswer(invocation -> {
+            calling.countDown();
+            answer.await(5, java.util.concurrent.TimeUnit.SECONDS);
+            return "{\"hashed_id\":\"shared\"}";
+        });
+
+        FakeChannel browserOwner = new FakeChannel("browser-desc");
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(2);
+        try {
+            java.util.concurrent.Future<String> first = pool.submit(() -> new FakePageMetadata(
+                    mockPage, new FakeChannel("p"), new FakeChannel("browser-guid-shared"), browserOwner).getSessionId());
+            assertTrue(calling.await(5, java.util.concurrent.TimeUnit.SECONDS));
+            java.util.concurrent.Future<String> second = pool.submit(() -> new FakePageMetadata(
+                    mockPage, new FakeChannel("p"), new FakeChannel("browser-guid-shared"), browserOwner).getSessionId());
+            answer.countDown();
+
+            assertEquals("shared", first.get(5, java.util.concurrent.TimeUnit.SECONDS));
+            assertEquals("shared", second.get(5, java.util.concurrent.TimeUnit.SECONDS));
+            verify(mockPage, times(1)).evaluate(anyString(), anyString());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Test
     public void getSessionIdReturnsHashedIdFromSessionDetails() throws Exception {
         Cache.CACHE_MAP.clear();
@@ -0,0 +1,80 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.Page;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link PercyDomInjector}: one init script per context plus an in-page
+ * version check.
+ */
+public class PercyDomInjectorTest {
+
+    private static final String SCRIPT = "window.PercyDOM = {};";
+
+    @Test
+    public void registersInitScriptOncePerContextAndVersion() {
+        BrowserContext context = Mockito.mock(BrowserContext.class);
+
+        PercyDomInjector.register(context, SCRIPT);
+        PercyDomInjector.register(context, SCRIPT);
+        verify(context, times(1)).addInitScript(PercyDomInjector.withVersionTag(SCRIPT));
+        assertTrue(PercyDomInjector.isRegistered(context));
+
+        // A new dom.js (CLI upgrade) is registered again
+        String upgraded = "window.PercyDOM = { v: 2 };";
+        PercyDomInjector.register(context, upgraded);
+        verify(context).addInitScript(PercyDomInjector.withVersionTag(upgraded));
+    }
+
+    @Test
+    public void registerIgnoresMissingContextOrScript() {
+        BrowserContext context = Mockito.mock(BrowserContext.class);
+        PercyDomInjector.register(null, SCRIPT);
+        PercyDomInjector.register(context, "");
+        PercyDomInjector.register(context, null);
+        verify(context, never()).addInitScript(anyString());
+        assertFalse(PercyDomInjector.isRegistered(context));
+    }
+
+    @Test
+    public void ensureLoadedSkipsEvaluationWhenVersionMatches() {
+        Page page = Mockito.mock(Page.class);
+        when(page.evaluate(anyString(), eq(PercyDomInjector.version(SCRIPT)))).thenReturn(true);
+
+        assertFalse(PercyDomInjector.ensureLoaded(page, SCRIPT));
+        verify(page, never()).evaluate(PercyDomInjector.withVersionTag(SCRIPT));
+    }
+
+    @Test
+    public void ensureLoadedEvaluatesScriptWhenMissingOrStale() {
+        Page page = Mockito.mock(Page.class);
+        when(page.evaluate(anyString(), any())).thenReturn(false);
+
+        assertTrue(PercyDomInjector.ensureLoaded(page, SCRIPT));
+        verify(page).evaluate(PercyDomInjector.withVersionTag(SCRIPT));
+    }
+
+    @Test
+    public void ensureLoadedWorksForFrames() {
+        Frame frame = Mockito.mock(Frame.class);
+        when(frame.evaluate(anyString(), any())).thenReturn(null);
+
+        assertTrue(PercyDomInjector.ensureLoaded(frame, SCRIPT));
+        verify(frame).evaluate(PercyDomInjector.withVersionTag(SCRIPT));
+    }
+
+    @Test
+    public void versionTagTracksScriptContent() {
+        assertEquals(PercyDomInjector.version(SCRIPT), PercyDomInjector.version(new String(SCRIPT)));
+        assertNotEquals(PercyDomInjector.version(SCRIPT), PercyDomInjector.version(SCRIPT + " "));
+        assertTrue(PercyDomInjector.withVersionTag(SCRIPT).startsWith(SCRIPT));
+        assertTrue(PercyDomInjector.withVersionTag(SCRIPT)
+                .contains(PercyDomInjector.VERSION_GLOBAL + " = \"" + PercyDomInjector.version(SCRIPT) + "\""));
+    }
+}
@@ -0,0 +1,182 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link PercySession}: thread confinement, per-page Percy instances and
+ * shutdown.
+ */
+public class PercySessionTest {
+
+    @Test
+    public void workRunsOnTheThreadThatCreatedPlaywright() throws Exception {
+        AtomicReference<Thread> creator = new AtomicReference<>();
+        Playwright playwright = mock(Playwright.class);
+        Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+        try (PercySession session = PercySession.create(() -> {
+            creator.set(Thread.currentThread());
+            return playwright;
+        })) {
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Playwright>> results = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    results.add(pool.submit(() -> session.call(pw -> {
+                        workers.add(Thread.currentThread());
+                        return pw;
+                    })));
+                }
+                for (Future<Playwright> result : results) {
+                    assertSame(playwright, result.get());
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        assertNotSame(Thread.currentThread(), creator.get());
+        assertEquals(1, workers.size());
+        assertTrue(workers.contains(creator.get()));
+    }
+
+    @Test
+    public void snapshotsFromManyThreadsAreCapturedOnTheSessionThread() throws Exception {
+        Set<Thread> capturing = ConcurrentHashMap.newKeySet();
+        Percy percy = mock(Percy.class);
+        when(percy.snapshotAsync(anyString(), anyMap())).thenAnswer(invocation -> {
+            capturing.add(Thread.currentThread());
+            String name = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(new JSONObject().put("name", name));
+        });
+        Page page = mock(Page.class);
+
+        try (PercySession session = PercySession.create(() -> mock(Playwright.class), p -> percy)) {
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<JSONObject>> results = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    String name = "snapshot-" + i;
+                    results.add(pool.submit(() -> session.snapshot(page, name).join()));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    assertEquals("snapshot-" + i, results.get(i).get().getString("name"));
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            assertEquals(1, capturing.size());
+            assertTrue(session.<Boolean>call(pw -> capturing.contains(Thread.currentThread())));
+        }
+        verify(percy, times(20)).snapshotAsync(anyString(), anyMap());
+    }
+
+    @Test
+    public void percyIsKeptPerPageUntilThePageCloses() {
+        AtomicInteger created = new AtomicInteger();
+        List<Consumer<Page>> closeHandlers = new ArrayList<>();
+        Page page = mock(Page.class);
+        Page other = mock(Page.class);
+        doAnswer(invocation -> {
+            closeHandlers.add(invocation.getArgument(0));
+            return null;
+        }).when(page).onClose(any());
+
+        try (PercySession session = PercySession.create(() -> mock(Playwright.class), p -> {
+            created.incrementAndGet();
+            return mock(Percy.class);
+        })) {
+            Percy first = session.call(pw -> session.percyFor(page));
+            assertSame(first, session.call(pw -> session.percyFor(page)));
+            assertNotSame(first, session.call(pw -> session.percyFor(other)));
+            assertEquals(2, created.get());
+
+            assertEquals(1, closeHandlers.size());
+            session.call(pw -> {
+                closeHandlers.get(0).accept(page);
+                return null;
+            });
+            assertNotSame(first, session.call(pw -> session.percyFor(page)));
+            assertEquals(3, created.get());
+        }
+    }
+
+    @Test
+    public void percyForRejectsCallsFromOtherThreads() {
+        try (PercySession session = PercySession.create(() -> mock(Playwright.class), p -> mock(Percy.class))) {
+            assertThrows(IllegalStateException.class, () -> session.percyFor(mock(Page.class)));
+        }
+    }
+
+    @Test
+    public void nestedWorkRunsInlineInsteadOfDeadlocking() {
+        try (PercySession session = PercySession.create(() -> mock(Playwright.class))) {
+            String result = session.call(pw -> session.call(inner -> "nested"));
+            assertEquals("nested", result);
+        }
+    }
+
+    @Test
+    public void failuresReachTheCaller() throws Exception {
+        Percy percy = mock(Percy.class);
+        when(percy.screenshot(anyString(), anyMap())).thenThrow(new Exception("not on automate"));
+
+        try (PercySession session = PercySession.create(() -> mock(Playwright.class), p -> percy)) {
+            IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                    () -> session.call(pw -> { throw new IllegalStateException("boom"); }));
+            assertEquals("boom", thrown.getMessage());
+
+            CompletableFuture<JSONObject> screenshot = session.screenshot(mock(Page.class), "home", new HashMap<String, Object>());
+            Exception failed = assertThrows(Exception.class, screenshot::join);
+            assertEquals("not on automate", failed.getCause().getMessage());
+
+            // The session thread survives a failure
+            assertEquals("still here", session.call(pw -> "still here"));
+        }
+    }
+
+    @Test
+    public void playwrightFactoryFailureIsRethrown() {
+        RuntimeException thrown = assertThrows(RuntimeException.class,
+                () -> PercySession.create(() -> { throw new IllegalStateException("no browsers installed"); }));
+        assertEquals("no browsers installed", thrown.getMessage());
+    }
+
+    @Test
+    public void closeClosesPlaywrightAndRejectsNewWork() {
+        Playwright playwright = mock(Playwright.class);
+        PercySession session = PercySession.create(() -> playwright);
+
+        session.close();
+        session.close();
+
+        verify(playwright, times(1)).close();
+        assertThrows(RejectedExecutionException.class, () -> session.submit(pw -> null));
+        Map<String, Object> options = new HashMap<>();
+        assertThrows(RejectedExecutionException.class, () -> session.snapshot(mock(Page.class), "late", options));
+    }
+}
@@ -10,6 +10,7 @@ import com.sun.net.httpserver.HttpServer;
 import org.json.JSONObject;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
@@ -21,6 +22,7 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +51,12 @@ public class PercyUnitTest {
     private static final Map<String, StubResponse> ROUTES = new HashMap<>();
     // Captures the last POST body received per path.
     private static final Map<String, String> LAST_BODY = new HashMap<>();
+    // Captures the Content-Encoding of the last request per path (null when absent).
+    private static final Map<String, String> LAST_ENCODING = new HashMap<>();
+    // When set, the stub answers gzip-encoded bodies with 415 like a CLI without support.
+    private static volatile boolean rejectGzip = false;
+    // Number of requests received per path
+    private static final Map<String, Integer> HITS = new java.util.concurrent.ConcurrentHashMap<>();
 
     static class StubResponse {
         int status = 200;
@@ -72,6 +80,10 @@ public class PercyUnitTest {
                 String path = exchange.getRequestURI().getPath();
                 // Record the request body for assertion. Read the stream manually
                 // for Java 8 compatibility (InputStream#readAllBytes is Java 9+).
+                // Like the CLI, transparently inflate gzip-encoded request bodies.
+                String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                LAST_ENCODING.put(path, encoding);
+                HITS.merge(path, 1, Integer::sum);
                 ByteArrayOutputStream buffer = new ByteArrayOutputStream();
                 byte[] chunk = new byte[4096];
                 int read;
@@ -80,7 +92,24 @@ public class PercyUnitTest {
                         buffer.write(chunk, 0, read);
                     }
                 }
-                LAST_BODY.put(path, new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+                byte[] raw = buffer.toByteArray();
+                if ("gzip".equalsIgnoreCase(encoding)) {
+                    if (rejectGzip) {
+                        exchange.getResponseHeaders().add("Accept-Encoding", "identity");
+                        exchange.sendResponseHeaders(415, -1);
+                        exchange.close();
+                        return;
+                    }
+                    buffer.reset();
+                    try (InputStream inflater = new java.util.zip.GZIPInputStream(
+                            new java.io.ByteArrayInputStream(raw))) {
+                        while ((read = inflater.read(chunk)) != -1) {
+                            buffer.write(chunk, 0, read);
+                        }
+                    }
+                    raw = buffer.toByteArray();
+                }
+                LAST_BODY.put(path, new String(raw, StandardCharsets.UTF_8));
 
                 StubResponse stub = ROUTES.getOrDefault(path, new StubResponse(200, "{}"));
                 for (Map.Entry<String, String> h : stub.headers.entrySet()) {
@@ -102,6 +131,13 @@ public class PercyUnitTest {
                 "http://localhost:" + server.getAddress().getPort());
     }
 
+    @BeforeEach
+    public void clearCliCache() {
+        // Tests swap the stub's healthcheck and widths-config answers freely
+        Percy.clearCliCache();
+        HITS.clear();
+    }
+
     @AfterAll
     public static void stopStub() throws Exception {
         if (server != null) {
@@ -136,6 +172,12 @@ public class PercyUnitTest {
         f.set(null, value);
     }
 
+    private static void setStaticIntField(String name, int value) throws Exception {
+        java.lang.reflect.Field f = Percy.class.getDeclaredField(name);
+        f.setAccessible(true);
+        f.set(null, value);
+    }
+
     private void route(String path, int status, String body) {
         ROUTES.put(path, new StubResponse(status, body));
     }
@@ -146,6 +188,7 @@ public class PercyUnitTest {
      * instance is "enabled" via the /percy/healthcheck route.
      */
     private Percy newPercy(Page page) {
+        Percy.clearCliCache();
         return new Percy(page);
     }
 
@@ -192,6 +235,149 @@ public class PercyUnitTest {
         assertNull(result);
     }
 
+    // -------------------------------------------------------------------------
+    // request() — negotiated gzip request bodies
+    // -------------------------------------------------------------------------
+
+    /** A JSON payload comfortably above the default compression threshold. */
+    private JSONObject largePayload(String name) {
+        StringBuilder html = new StringBuilder();
+        while (html.length() < RequestCompression.threshold() + 1024) {
+            html.append("<div class=\"row\">percy</div>");
+        }
+        JSONObject payload = new JSONObject();
+        payload.put("name", name);
+        payload.put("html", html.toString());
+        return payload;
+    }
+
+    private Percy newGzipPercy() {
+        StubResponse health = new StubResponse(200, "{\"type\":\"web\"}");
+        health.headers.put("x-percy-core-version", "1.27.0");
+        health.headers.put("Accept-Encoding", "gzip");
+        ROUTES.put("/percy/healthcheck", health);
+        Percy.clearCliCache();
+        return new Percy(Mockito.mock(Page.class));
+    }
+
+    @Test
+    public void responsivePayloadSharesResourcesWhenCliAdvertisesResourceRefs() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        StubResponse health = new StubResponse(200, "{\"type\":\"web\"}");
+        health.headers.put("x-percy-core-version", "1.27.0");
+        health.headers.put(ResourceDedup.FEATURES_HEADER, ResourceDedup.FEATURE);
+        ROUTES.put("/percy/healthcheck", health);
+        route("/percy/dom.js", 200, "window.PercyDOM = {};");
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":375},{\"width\":1280}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Shared\"}}");
+        try {
+            Percy.clearCliCache();
+            Percy percy = new Percy(mockPage);
+            assertTrue(percy.cliAcceptsResourceRefs);
+
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Shared", options));
+
+            JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            assertEquals(1, body.getJSONObject("sharedCookies").length());
+            org.json.JSONArray doms = body.getJSONArray("domSnapshot");
+            assertEquals(doms.getJSONObject(0).getString("cookiesRef"),
+                    doms.getJSONObject(1).getString("cookiesRef"));
+            assertFalse(doms.getJSONObject(0).has("cookies"));
+
+            // Without the feature header the plain format is kept.
+            Percy plain = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertFalse(plain.cliAcceptsResourceRefs);
+            assertNotNull(plain.snapshot("Plain", options));
+            body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            assertFalse(body.has("sharedCookies"));
+            assertTrue(body.getJSONArray("domSnapshot").getJSONObject(0).has("cookies"));
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void requestGzipsLargeBodyWhenCliAdvertisesGzip() {
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Big\"}}");
+        try {
+            Percy percy = newGzipPercy();
+            assertTrue(percy.cliAcceptsGzip);
+
+            JSONObject payload = largePayload("Big");
+            JSONObject result = percy.request("/percy/snapshot", payload, "Big");
+
+            assertNotNull(result);
+            assertEquals("gzip", LAST_ENCODING.get("/percy/snapshot"));
+            // The stand-in CLI inflated the body back to the exact JSON that was sent.
+            assertEquals(payload.toString(), LAST_BODY.get("/percy/snapshot"));
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+        }
+    }
+
+    @Test
+    public void requestSkipsGzipBelowThreshold() {
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Small\"}}");
+        try {
+            Percy percy = newGzipPercy();
+            JSONObject payload = new JSONObject();
+            payload.put("name", "Small");
+
+            assertNotNull(percy.request("/percy/snapshot", payload, "Small"));
+            assertNull(LAST_ENCODING.get("/percy/snapshot"));
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+        }
+    }
+
+    @Test
+    public void requestNeverGzipsWhenCliDoesNotAdvertiseIt() {
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Plain\"}}");
+        try {
+            Percy percy = newEnabledPercy(Mockito.mock(Page.class), "{\"type\":\"web\"}");
+            assertFalse(percy.cliAcceptsGzip);
+
+            assertNotNull(percy.request("/percy/snapshot", largePayload("Plain"), "Plain"));
+            assertNull(LAST_ENCODING.get("/percy/snapshot"));
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+        }
+    }
+
+    @Test
+    public void requestResendsUncompressedWhenCliRejectsGzip() {
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Retry\"}}");
+        rejectGzip = true;
+        try {
+            Percy percy = newGzipPercy();
+            JSONObject payload = largePayload("Retry");
+
+            JSONObject result = percy.request("/percy/snapshot", payload, "Retry");
+
+            assertNotNull(result);
+            assertEquals("Retry", result.getString("snapshot-name"));
+            assertFalse(percy.cliAcceptsGzip);
+            assertNull(LAST_ENCODING.get("/percy/snapshot"));
+            assertEquals(payload.toString(), LAST_BODY.get("/percy/snapshot"));
+
+            // Later instances learn it from the cached healthcheck, without another 415
+            Percy next = new Percy(Mockito.mock(Page.class));
+            assertFalse(next.cliAcceptsGzip);
+            assertEquals(1, HITS.get("/percy/healthcheck").intValue());
+        } finally {
+            rejectGzip = false;
+            ROUTES.remove("/percy/healthcheck");
+        }
+    }
+
     // -------------------------------------------------------------------------
     // log() — static logging wrapper
     // -------------------------------------------------------------------------
@@ -200,7 +386,8 @@ public class PercyUnitTest {
     public void logInfoPostsToCliAndDoesNotThrow() {
         route("/percy/log", 200, "{}");
         assertDoesNotThrow(() -> Percy.log("hello world"));
-        // The log message should have been posted to /percy/log
+        // The log message is shipped in the background; wait for it to reach /percy/log
+        assertTrue(Percy.flushLogs(5, java.util.concurrent.TimeUnit.SECONDS));
         String body = LAST_BODY.get("/percy/log");
         assertNotNull(body);
         assertTrue(body.contains("hello world"));
@@ -213,6 +400,28 @@ public class PercyUnitTest {
         assertDoesNotThrow(() -> Percy.log("debug detail", "debug"));
     }
 
+    @Test
+    public void logSupplierIsNotEvaluatedForDebugWhenDebugDisabled() throws Exception {
+        boolean originalDebug = getStaticBooleanField("PERCY_DEBUG");
+        try {
+            setStaticBooleanField("PERCY_DEBUG", false);
+            java.util.concurrent.atomic.AtomicBoolean built = new java.util.concurrent.atomic.AtomicBoolean();
+            Percy.log(() -> {
+                built.set(true);
+                return "expensive detail";
+            }, "debug");
+            assertFalse(built.get());
+
+            Percy.log(() -> {
+                built.set(true);
+                return "lazy info";
+            }, "info");
+            assertTrue(built.get());
+        } finally {
+            setStaticBooleanField("PERCY_DEBUG", originalDebug);
+        }
+    }
+
     // -------------------------------------------------------------------------
     // createRegion() — additional branches not covered by SDKTest
     // -------------------------------------------------------------------------
@@ -660,6 +869,42 @@ public class PercyUnitTest {
         }
     }
 
+    @Test
+    public void healthcheckIsMemoizedAcrossInstances() {
+        StubResponse stub = new StubResponse(200, "{\"type\":\"web\",\"config\":{\"snapshot\":{}}}");
+        stub.headers.put("x-percy-core-version", "1.27.0");
+        ROUTES.put("/percy/healthcheck", stub);
+        try {
+            Percy first = new Percy(Mockito.mock(Page.class));
+            // The CLI going away is not noticed until the cache is cleared.
+            route("/percy/healthcheck", 500, "{}");
+            Percy second = new Percy(Mockito.mock(Page.class));
+
+            assertEquals(1, HITS.get("/percy/healthcheck").intValue());
+            assertEquals("web", second.sessionType);
+            // Each instance gets its own copy of the config.
+            assertNotSame(first.cliConfig, second.cliConfig);
+
+            Percy.clearCliCache();
+            new Percy(Mockito.mock(Page.class));
+            assertEquals(2, HITS.get("/percy/healthcheck").intValue());
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+        }
+    }
+
+    @Test
+    public void disabledHealthcheckIsMemoized() {
+        route("/percy/healthcheck", 500, "{}");
+        try {
+            assertNull(new Percy(Mockito.mock(Page.class)).snapshot("off"));
+            assertNull(new Percy(Mockito.mock(Page.class)).snapshot("still off"));
+            assertEquals(1, HITS.get("/percy/healthcheck").intValue());
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+        }
+    }
+
     // -------------------------------------------------------------------------
     // End-to-end snapshot path against a healthy stub CLI (mocked Page).
     // Exercises the enabled snapshot() body, fetchPercyDOM(), postSnapshot(),
@@ -672,6 +917,7 @@ public class PercyUnitTest {
         health.headers.put("x-percy-core-version", "1.27.0");
         ROUTES.put("/percy/healthcheck", health);
         route("/percy/dom.js", 200, "window.PercyDOM = {};");
+        Percy.clearCliCache();
         return new Percy(page);
     }
 
@@ -830,6 +1076,60 @@ public class PercyUnitTest {
         }
     }
 
+    @Test
+    public void responsiveCaptureOnSiblingPagesLeavesUserViewportAlone() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize()).thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        com.microsoft.playwright.BrowserContext ctx = mockPage.context();
+        List<Page> siblings = new ArrayList<>();
+        when(ctx.newPage()).thenAnswer(invocation -> {
+            Page sibling = Mockito.mock(Page.class);
+            Map<String, Object> dom = new HashMap<>();
+            dom.put("html", "<html>sibling " + siblings.size() + "</html>");
+            when(sibling.evaluate(anyString())).thenReturn(dom);
+            when(sibling.url()).thenReturn("http://example.com");
+            when(sibling.frames()).thenReturn(new ArrayList<>());
+            when(sibling.context()).thenReturn(ctx);
+            siblings.add(sibling);
+            return sibling;
+        });
+
+        route("/percy/widths-config", 200,
+                "{\"widths\":[{\"width\":375,\"height\":667},{\"width\":768},{\"width\":1280}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Siblings\"}}");
+        setStaticIntField("PERCY_RESPONSIVE_CAPTURE_PAGES", 2);
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Siblings", options));
+
+            // Three widths, at most two pages at a time, every page closed afterwards.
+            assertEquals(3, siblings.size());
+            verify(siblings.get(0)).setViewportSize(375, 667);
+            verify(siblings.get(1)).setViewportSize(768, 720);
+            verify(siblings.get(2)).setViewportSize(1280, 720);
+            for (Page sibling : siblings) {
+                verify(sibling).navigate(eq("http://example.com"), any(Page.NavigateOptions.class));
+                verify(sibling).close();
+            }
+            verify(mockPage, never()).setViewportSize(anyInt(), anyInt());
+            verify(mockPage, never()).evaluate("PercyDOM.waitForResize()");
+
+            JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            org.json.JSONArray doms = body.getJSONArray("domSnapshot");
+            assertEquals(3, doms.length());
+            assertEquals(375, doms.getJSONObject(0).getInt("width"));
+            assertEquals("<html>sibling 0</html>", doms.getJSONObject(0).getString("html"));
+            assertEquals(1280, doms.getJSONObject(2).getInt("width"));
+        } finally {
+            setStaticIntField("PERCY_RESPONSIVE_CAPTURE_PAGES", 1);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+        }
+    }
+
     @Test
     public void responsiveWidthsConfigErrorAbortsSnapshotGracefully() {
         Page mockPage = Mockito.mock(Page.class);
@@ -924,6 +1224,150 @@ public class PercyUnitTest {
         return mockPage;
     }
 
+    @Test
+    public void identicalSnapshotIsSkippedOrWarnedPerDuplicateMode() throws Exception {
+        Page mockPage = mockSerializablePage();
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Dup\"}}");
+        DuplicateSnapshots.clear();
+        try {
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "skip");
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertNotNull(percy.snapshot("Dup"));
+            // A retried test posting the same state is dropped before the POST.
+            assertNull(percy.snapshot("Dup"));
+            assertEquals(1, HITS.get("/percy/snapshot").intValue());
+
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "warn");
+            assertNotNull(percy.snapshot("Dup"));
+            assertEquals(2, HITS.get("/percy/snapshot").intValue());
+
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "upload");
+            assertNotNull(percy.snapshot("Dup"));
+            assertEquals(3, HITS.get("/percy/snapshot").intValue());
+        } finally {
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "upload");
+            DuplicateSnapshots.clear();
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void failedUploadIsNotTreatedAsDuplicateOnRetry() throws Exception {
+        Page mockPage = mockSerializablePage();
+        route("/percy/snapshot", 200, "{\"success\":false}");
+        DuplicateSnapshots.clear();
+        try {
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "skip");
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertNull(percy.snapshot("Retried"));
+
+            // The identical retry still reaches the CLI, and only then counts as taken
+            route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Retried\"}}");
+            assertNotNull(percy.snapshot("Retried"));
+            assertNull(percy.snapshot("Retried"));
+            assertEquals(2, HITS.get("/percy/snapshot").intValue());
+        } finally {
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "upload");
+            DuplicateSnapshots.clear();
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void snapshotListenersReceiveTimingBreakdownAndOutcome() throws Exception {
+        Page mockPage = mockSerializablePage();
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Timed\"}}");
+        List<SnapshotMetrics> received = new ArrayList<>();
+        SnapshotListener listener = received::add;
+        // A failing listener is logged and does not stop the others
+        SnapshotListener failing = metrics -> { throw new IllegalStateException("listener broke"); };
+        DuplicateSnapshots.clear();
+        Percy.addSnapshotListener(failing);
+        Percy.addSnapshotListener(listener);
+        try {
+            setStaticIntField("PERCY_SLOW_SNAPSHOT_MS", 1);
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "skip");
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertNotNull(percy.snapshot("Timed"));
+
+            assertEquals(1, received.size());
+            SnapshotMetrics uploaded = received.get(0);
+            assertEquals("Timed", uploaded.getName());
+            assertEquals(SnapshotMetrics.Outcome.UPLOADED, uploaded.getOutcome());
+            assertEquals(Arrays.asList(SnapshotMetrics.DOM_FETCH, SnapshotMetrics.INJECT,
+                    SnapshotMetrics.COOKIES, SnapshotMetrics.READINESS, SnapshotMetrics.SERIALIZE,
+                    SnapshotMetrics.FRAMES, SnapshotMetrics.PAYLOAD, SnapshotMetrics.POST),
+                    new ArrayList<>(uploaded.getPhaseNanos().keySet()));
+            assertEquals(1, uploaded.getWidths());
+            assertEquals(LAST_BODY.get("/percy/snapshot").getBytes(StandardCharsets.UTF_8).length,
+                    uploaded.getPayloadBytes());
+            assertNull(uploaded.getError());
+
+            assertNull(percy.snapshot("Timed"));
+            assertEquals(SnapshotMetrics.Outcome.SKIPPED, received.get(1).getOutcome());
+            assertEquals(0, received.get(1).getPayloadBytes());
+
+            // A CLI answer without data is reported as a failed upload
+            route("/percy/snapshot", 200, "{\"success\":false}");
+            assertNull(percy.snapshot("Rejected"));
+            assertEquals(SnapshotMetrics.Outcome.FAILED, received.get(2).getOutcome());
+            assertEquals("Percy CLI responded with status 200", received.get(2).getError());
+
+            // Capture failures are reported without a POST
+            when(mockPage.evaluate(anyString())).thenThrow(new RuntimeException("page crashed"));
+            assertNull(percy.snapshot("Broken"));
+            SnapshotMetrics failed = received.get(3);
+            assertEquals(SnapshotMetrics.Outcome.FAILED, failed.getOutcome());
+            assertEquals("Snapshot capture failed: page crashed", failed.getError());
+            assertFalse(failed.getPhaseNanos().containsKey(SnapshotMetrics.POST));
+
+            Percy.removeSnapshotListener(listener);
+            percy.snapshot("Unheard");
+            assertEquals(4, received.size());
+        } finally {
+            Percy.removeSnapshotListener(listener);
+            Percy.removeSnapshotListener(failing);
+            setStaticIntField("PERCY_SLOW_SNAPSHOT_MS", 0);
+            setStaticStringField("PERCY_DUPLICATE_SNAPSHOTS", "upload");
+            DuplicateSnapshots.clear();
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void responsiveSnapshotReportsResizeTimeAndWidths() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize()).thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        route("/percy/widths-config", 200,
+                "{\"widths\":[{\"width\":375,\"height\":667},{\"width\":1280}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Wide\"}}");
+        List<SnapshotMetrics> received = new ArrayList<>();
+        SnapshotListener listener = received::add;
+        Percy.addSnapshotListener(listener);
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Wide", options));
+
+            SnapshotMetrics metrics = received.get(0);
+            assertEquals(2, metrics.getWidths());
+            assertTrue(metrics.getPhaseNanos().containsKey(SnapshotMetrics.RESIZE));
+        } finally {
+            Percy.removeSnapshotListener(listener);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
     @Test
     public void snapshotConvenienceOverloadsRunBodiesWhenEnabled() {
         Page mockPage = mockSerializablePage();
@@ -945,6 +1389,168 @@ public class PercyUnitTest {
         }
     }
 
+    @Test
+    public void domJsIsDownloadedOncePerJvm() {
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"ok\"}}");
+        try {
+            Percy first = newEnabledPercy(mockSerializablePage(), "{\"type\":\"web\"}");
+            assertNotNull(first.snapshot("first"));
+            // A second instance in the same JVM reuses the cached script.
+            Percy second = new Percy(mockSerializablePage());
+            assertNotNull(second.snapshot("second"));
+
+            assertEquals(1, HITS.get("/percy/dom.js").intValue());
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+        }
+    }
+
+    @Test
+    public void initScriptModeInjectsPercyDomOncePerContext() throws Exception {
+        Page mockPage = mockSerializablePage();
+        String script = "window.PercyDOM = {};";
+        String version = PercyDomInjector.version(script);
+        // First snapshot: the already-loaded page lacks PercyDOM; afterwards it is present.
+        when(mockPage.evaluate(anyString(), eq(version))).thenReturn(false, true);
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"ok\"}}");
+        setStaticBooleanField("PERCY_DOM_INIT_SCRIPT", true);
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertNotNull(percy.snapshot("first"));
+            assertNotNull(percy.snapshot("second"));
+
+            verify(mockPage.context(), times(1)).addInitScript(PercyDomInjector.withVersionTag(script));
+            verify(mockPage, times(1)).evaluate(PercyDomInjector.withVersionTag(script));
+            verify(mockPage, never()).evaluate(script);
+        } finally {
+            setStaticBooleanField("PERCY_DOM_INIT_SCRIPT", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+        }
+    }
+
+    @Test
+    public void fusedCaptureSkipsReadinessLikeTheUnfusedPathWhenDomJsLacksIt() {
+        // An older dom.js without waitForReady must not fail the whole fused evaluate
+        assertTrue(Percy.FUSED_CAPTURE_JS.contains(
+                "typeof PercyDOM !== 'undefined' && typeof PercyDOM.waitForReady === 'function'"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void fusedCaptureSerializesAndMapsFramesInOneEvaluate() throws Exception {
+        Page mockPage = mockSerializablePage();
+        Frame matched = Mockito.mock(Frame.class);
+        when(matched.url()).thenReturn("http://widgets.example.org/embed");
+        Map<String, Object> frameDom = new HashMap<>();
+        frameDom.put("html", "<p>frame</p>");
+        when(matched.evaluate(startsWith("PercyDOM.serialize"))).thenReturn(frameDom);
+        Frame unmatched = Mockito.mock(Frame.class);
+        when(unmatched.url()).thenReturn("http://ads.example.net/slot");
+        when(mockPage.frames()).thenReturn(Arrays.asList(matched, unmatched));
+
+        Map<String, Object> dom = new HashMap<>();
+        dom.put("html", "<html>fused</html>");
+        Map<String, Object> frames = new HashMap<>();
+        frames.put("http://widgets.example.org/embed", "percy-1");
+        frames.put("http://ads.example.net/slot", null);
+        Map<String, Object> fused = new HashMap<>();
+        fused.put("dom", dom);
+        fused.put("readiness", Collections.singletonMap("passed", true));
+        fused.put("frames", frames);
+        when(mockPage.evaluate(eq(Percy.FUSED_CAPTURE_JS), any())).thenReturn(fused);
+
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"fused\"}}");
+        setStaticBooleanField("PERCY_FUSED_CAPTURE", true);
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertNotNull(percy.snapshot("fused"));
+
+            org.mockito.ArgumentCaptor<Object> arg = org.mockito.ArgumentCaptor.forClass(Object.class);
+            verify(mockPage).evaluate(eq(Percy.FUSED_CAPTURE_JS), arg.capture());
+            assertEquals(Arrays.asList("http://widgets.example.org/embed", "http://ads.example.net/slot"),
+                    ((Map<String, Object>) arg.getValue()).get("frameUrls"));
+            // No separate readiness, serialize or per-frame mapping round trips.
+            verify(mockPage, never()).evaluate(startsWith("PercyDOM.serialize"));
+            verify(mockPage, never()).evaluate(startsWith("(fUrl)"), any());
+            // Only the frame with a matching iframe element is serialized.
+            verify(unmatched, never()).evaluate(startsWith("PercyDOM.serialize"));
+
+            JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            JSONObject snapshot = body.getJSONObject("domSnapshot");
+            assertEquals("<html>fused</html>", snapshot.getString("html"));
+            assertTrue(snapshot.getJSONObject("readiness_diagnostics").getBoolean("passed"));
+            assertEquals(1, snapshot.getJSONArray("corsIframes").length());
+            JSONObject iframe = snapshot.getJSONArray("corsIframes").getJSONObject(0);
+            assertEquals("percy-1", iframe.getJSONObject("iframeData").getString("percyElementId"));
+            assertEquals("<p>frame</p>", iframe.getJSONObject("iframeSnapshot").getString("html"));
+        } finally {
+            setStaticBooleanField("PERCY_FUSED_CAPTURE", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+        }
+    }
+
+    @Test
+    public void fusedCaptureFailsSnapshotWhenSerializeReturnsNothing() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.evaluate(eq(Percy.FUSED_CAPTURE_JS), any())).thenReturn(null);
+        setStaticBooleanField("PERCY_FUSED_CAPTURE", true);
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertNull(percy.snapshot("fused-null"));
+        } finally {
+            setStaticBooleanField("PERCY_FUSED_CAPTURE", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // snapshotAsync(): capture on the caller thread, upload in the background.
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void snapshotAsyncPostsInBackgroundWhenEnabled() throws Exception {
+        Page mockPage = mockSerializablePage();
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Async\"}}");
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            java.util.concurrent.CompletableFuture<JSONObject> future = percy.snapshotAsync("Async");
+
+            // The DOM was serialized before snapshotAsync returned.
+            verify(mockPage, atLeastOnce()).evaluate(contains("PercyDOM.serialize"));
+            JSONObject result = future.get(10, java.util.concurrent.TimeUnit.SECONDS);
+            assertNotNull(result);
+            assertEquals("Async", result.getString("snapshot-name"));
+            assertTrue(Percy.flushSnapshots(10, java.util.concurrent.TimeUnit.SECONDS));
+            assertTrue(LAST_BODY.get("/percy/snapshot").contains("Async"));
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+        }
+    }
+
+    @Test
+    public void snapshotAsyncCompletesWithNullWhenDisabled() throws Exception {
+        Percy percy = newPercy(Mockito.mock(Page.class));
+        assertNull(percy.snapshotAsync("disabled async").get());
+    }
+
+    @Test
+    public void snapshotAsyncCompletesWithNullWhenCaptureFails() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.evaluate(anyString())).thenThrow(new RuntimeException("serialize boom"));
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            assertNull(percy.snapshotAsync("AsyncBoom", new HashMap<>()).get());
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+        }
+    }
+
     @Test
     public void responsiveCaptureToleratesViewportAndWaitFailures() {
         Page mockPage = Mockito.mock(Page.class);
@@ -1023,6 +1629,48 @@ public class PercyUnitTest {
         }
     }
 
+    @Test
+    public void automateSessionDetailsArePrefetchedOnConstruction() throws Exception {
+        java.lang.reflect.Field metadataField = Percy.class.getDeclaredField("pageMetadata");
+        metadataField.setAccessible(true);
+        PageMetadata meta = Mockito.mock(PageMetadata.class);
+        when(meta.getSessionId()).thenReturn("sid");
+        when(meta.getPageGuid()).thenReturn("pg");
+        when(meta.getFrameGuid()).thenReturn("fg");
+        when(meta.getFramework()).thenReturn("playwright");
+        route("/percy/automateScreenshot", 200, "{\"data\":{\"name\":\"Auto\"}}");
+        try {
+            // Off by default: creating Percy does not touch the page
+            Page notPrefetched = Mockito.mock(Page.class);
+            assertNull(metadataField.get(newEnabledPercy(notPrefetched, "{\"type\":\"automate\"}")));
+            verify(notPrefetched, never()).context();
+
+            // The lookup starts from the page's browser; a plain mock page has none, and
+            // the failed prefetch is only logged
+            setStaticBooleanField("PERCY_AUTOMATE_PREFETCH", true);
+            Page mockPage = Mockito.mock(Page.class);
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"automate\"}");
+            verify(mockPage, times(1)).context();
+            assertTrue(metadataField.get(percy) instanceof PageMetadata);
+
+            // Screenshots keep the metadata the constructor created
+            metadataField.set(percy, meta);
+            assertNotNull(percy.screenshot("Auto"));
+            assertSame(meta, metadataField.get(percy));
+            assertTrue(LAST_BODY.get("/percy/automateScreenshot").contains("sid"));
+
+            // Web sessions never look up Automate details
+            Page webPage = Mockito.mock(Page.class);
+            assertNull(metadataField.get(newEnabledPercy(webPage, "{\"type\":\"web\"}")));
+            verify(webPage, never()).context();
+        } finally {
+            setStaticBooleanField("PERCY_AUTOMATE_PREFETCH", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/automateScreenshot");
+        }
+    }
+
     // -------------------------------------------------------------------------
     // setPageMetadata(): constructs a PageMetadata for the current page.
     // -------------------------------------------------------------------------
@@ -1038,6 +1686,10 @@ public class PercyUnitTest {
         Object meta = f.get(percy);
         assertNotNull(meta);
         assertTrue(meta instanceof PageMetadata);
+
+        // Later screenshots on the same page reuse it
+        percy.setPageMetadata();
+        assertSame(meta, f.get(percy));
     }
 
     // -------------------------------------------------------------------------
@@ -1054,6 +1706,8 @@ public class PercyUnitTest {
             setStaticStringField("PERCY_SERVER_ADDRESS", "http://localhost:1");
             setStaticBooleanField("PERCY_DEBUG", true);
             assertDoesNotThrow(() -> Percy.log("unreachable log", "info"));
+            // Let the background shipper hit the closed port before restoring the address.
+            assertTrue(Percy.flushLogs(5, java.util.concurrent.TimeUnit.SECONDS));
         } finally {
             setStaticBooleanField("PERCY_DEBUG", originalDebug);
             setStaticStringField("PERCY_SERVER_ADDRESS", currentAddr);
@@ -1121,6 +1775,360 @@ public class PercyUnitTest {
         }
     }
 
+    @Test
+    public void responsiveCaptureCollapsesWidthsBetweenBreakpointsWhenEnabled() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        when(mockPage.evaluate(ResponsiveBreakpoints.COLLECT_JS))
+                .thenReturn(Collections.singletonList("(min-width: 768px)"));
+        // Captured at 1280, 375 and 600: the ends of the 375..600 group match
+        when(mockPage.evaluate(DomFingerprint.JS)).thenReturn("desktop", "mobile", "mobile");
+        route("/percy/widths-config", 200,
+                "{\"widths\":[{\"width\":375},{\"width\":414},{\"width\":600},{\"width\":1280}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Breakpoints\"}}");
+
+        try {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS", true);
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            verify(mockPage).addInitScript(ResponsiveBreakpoints.RECORDER_JS);
+
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Breakpoints", options));
+
+            // 1280 is captured at the current viewport; 414 shares the 375 capture.
+            verify(mockPage, times(1)).setViewportSize(375, 720);
+            verify(mockPage, times(1)).setViewportSize(600, 720);
+            verify(mockPage, never()).setViewportSize(eq(414), anyInt());
+            verify(mockPage).setViewportSize(1280, 720);
+
+            JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            org.json.JSONArray doms = body.getJSONArray("domSnapshot");
+            assertEquals(4, doms.length());
+            assertEquals(375, doms.getJSONObject(0).getInt("width"));
+            assertEquals(414, doms.getJSONObject(1).getInt("width"));
+            assertEquals(600, doms.getJSONObject(2).getInt("width"));
+            assertEquals(1280, doms.getJSONObject(3).getInt("width"));
+        } finally {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void responsiveCaptureKeepsWidthsWhoseDomChangesWithoutABreakpoint() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        when(mockPage.evaluate(ResponsiveBreakpoints.COLLECT_JS))
+                .thenReturn(Collections.singletonList("(min-width: 768px)"));
+        // A script writes the viewport width into the page, so the group's ends differ
+        when(mockPage.evaluate(DomFingerprint.JS)).thenReturn("1280px", "375px", "600px", "414px");
+        route("/percy/widths-config", 200,
+                "{\"widths\":[{\"width\":375},{\"width\":414},{\"width\":600},{\"width\":1280}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Scripted\"}}");
+
+        try {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS", true);
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Scripted", options));
+
+            verify(mockPage, times(1)).setViewportSize(414, 720);
+            verify(mockPage, times(4)).evaluate(startsWith("PercyDOM.serialize("));
+            JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            assertEquals(4, body.getJSONArray("domSnapshot").length());
+        } finally {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void responsiveCaptureReusesDomWhenFingerprintUnchanged() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        when(mockPage.evaluate(DomFingerprint.JS))
+                .thenReturn("abc:10", "abc:10", "def:12");
+        route("/percy/widths-config", 200,
+                "{\"widths\":[{\"width\":375},{\"width\":414},{\"width\":1280}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Fingerprint\"}}");
+
+        try {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_FINGERPRINT", true);
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Fingerprint", options));
+
+            // 414 matched 375's fingerprint; 1280 changed and was serialized again.
+            verify(mockPage, times(3)).evaluate(DomFingerprint.JS);
+            verify(mockPage, times(2)).evaluate(startsWith("PercyDOM.serialize("));
+            JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            org.json.JSONArray doms = body.getJSONArray("domSnapshot");
+            assertEquals(3, doms.length());
+            assertEquals(414, doms.getJSONObject(1).getInt("width"));
+            assertEquals("<html></html>", doms.getJSONObject(1).getString("html"));
+        } finally {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_FINGERPRINT", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void responsiveCaptureSerializesUnchangedCrossOriginFrameOnce() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        Map<String, Object> iframeData = new HashMap<>();
+        iframeData.put("percyElementId", "el-1");
+        when(mockPage.evaluate(anyString(), any())).thenReturn(iframeData);
+        Frame adFrame = Mockito.mock(Frame.class);
+        when(adFrame.url()).thenReturn("http://ads.example.net/slot");
+        when(adFrame.evaluate(DomFingerprint.JS)).thenReturn("f:3");
+        Map<String, Object> iframeSnapshot = new HashMap<>();
+        iframeSnapshot.put("html", "<ad/>");
+        when(adFrame.evaluate(startsWith("PercyDOM.serialize("))).thenReturn(iframeSnapshot);
+        when(mockPage.frames()).thenReturn(Arrays.asList(adFrame));
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":375},{\"width\":1280}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Frames\"}}");
+
+        try {
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Frames", options));
+
+            verify(adFrame, times(2)).evaluate(DomFingerprint.JS);
+            verify(adFrame, times(1)).evaluate(startsWith("PercyDOM.serialize("));
+            JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+            org.json.JSONArray doms = body.getJSONArray("domSnapshot");
+            for (int i = 0; i < doms.length(); i++) {
+                JSONObject frame = doms.getJSONObject(i).getJSONArray("corsIframes").getJSONObject(0);
+                assertEquals("<ad/>", frame.getJSONObject("iframeSnapshot").getString("html"));
+            }
+
+            // Outside responsive capture frames are serialized without fingerprinting.
+            percy.getSerializedDOM(new ArrayList<>(), "// dom", new HashMap<>());
+            verify(adFrame, times(2)).evaluate(DomFingerprint.JS);
+            verify(adFrame, times(2)).evaluate(startsWith("PercyDOM.serialize("));
+        } finally {
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void responsiveCaptureSerializesEveryWidthWhenFingerprintUnavailable() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        when(mockPage.evaluate(DomFingerprint.JS))
+                .thenReturn(null)
+                .thenThrow(new RuntimeException("Execution context was destroyed"));
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":375},{\"width\":414}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"NoFingerprint\"}}");
+
+        try {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_FINGERPRINT", true);
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("NoFingerprint", options));
+
+            verify(mockPage, times(2)).evaluate(startsWith("PercyDOM.serialize("));
+        } finally {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_FINGERPRINT", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void responsiveCaptureKeepsEveryWidthWhenBreakpointsAreUnknown() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        when(mockPage.evaluate(ResponsiveBreakpoints.COLLECT_JS))
+                .thenReturn(null)
+                .thenReturn(Collections.singletonList("(orientation: landscape)"))
+                .thenThrow(new RuntimeException("Execution context was destroyed"));
+        doThrow(new RuntimeException("Target closed")).when(mockPage).addInitScript(anyString());
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":375},{\"width\":414}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Unknown\"}}");
+
+        try {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS", true);
+            Percy percy = newEnabledPercy(mockPage, "{\"type\":\"web\"}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+
+            // No recorder, unsupported query, evaluate failure: every width is captured.
+            for (int i = 0; i < 3; i++) {
+                assertNotNull(percy.snapshot("Unknown " + i, options));
+                JSONObject body = new JSONObject(LAST_BODY.get("/percy/snapshot"));
+                assertEquals(2, body.getJSONArray("domSnapshot").length());
+            }
+            verify(mockPage, times(3)).setViewportSize(414, 720);
+        } finally {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_BREAKPOINTS", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void responsiveCaptureServesReloadsFromRouteCacheWhenEnabled() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":480},{\"width\":1200}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Cached\"}}");
+
+        boolean originalReload = getStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE");
+        try {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE", true);
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_CACHE", true);
+            Percy percy = newEnabledPercy(mockPage,
+                    "{\"type\":\"web\",\"config\":{\"snapshot\":{\"responsiveSnapshotCapture\":true}}}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Cached", options));
+
+            // Route installed before the reloads and removed once capture is done.
+            org.mockito.InOrder order = inOrder(mockPage);
+            order.verify(mockPage).route(eq(ReloadResponseCache.PATTERN), any(java.util.function.Consumer.class));
+            order.verify(mockPage, times(2)).reload();
+            order.verify(mockPage).unroute(eq(ReloadResponseCache.PATTERN), any(java.util.function.Consumer.class));
+        } finally {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_CACHE", false);
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE", originalReload);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void responsiveCaptureReloadsFromNetworkWhenRouteCannotBeInstalled() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        doThrow(new RuntimeException("Target closed"))
+                .when(mockPage).route(anyString(), any(java.util.function.Consumer.class));
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":480}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"NoRoute\"}}");
+
+        boolean originalReload = getStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE");
+        try {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE", true);
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_CACHE", true);
+            Percy percy = newEnabledPercy(mockPage,
+                    "{\"type\":\"web\",\"config\":{\"snapshot\":{\"responsiveSnapshotCapture\":true}}}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("NoRoute", options));
+
+            verify(mockPage).reload();
+            verify(mockPage, never()).unroute(anyString(), any(java.util.function.Consumer.class));
+        } finally {
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_CACHE", false);
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE", originalReload);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void responsiveCaptureWaitsOnSettleSignalWhenEnabled() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":480},{\"width\":1200}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Settle\"}}");
+
+        boolean originalReload = getStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE");
+        try {
+            setStaticBooleanField("PERCY_RESIZE_SETTLE", true);
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE", true);
+            Percy percy = newEnabledPercy(mockPage,
+                    "{\"type\":\"web\",\"config\":{\"snapshot\":{\"responsiveSnapshotCapture\":true}}}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Settle", options));
+
+            // Binding exposed once; listener re-armed after every reload; no polling.
+            verify(mockPage, times(1)).exposeBinding(eq(ResizeSettleSignal.BINDING),
+                    any(com.microsoft.playwright.options.BindingCallback.class));
+            verify(mockPage, times(3)).evaluate(ResizeSettleSignal.LISTENER_JS, 2);
+            verify(mockPage, atLeastOnce()).waitForCondition(any(java.util.function.BooleanSupplier.class),
+                    any(Page.WaitForConditionOptions.class));
+            verify(mockPage, never()).evaluate("PercyDOM.waitForResize()");
+            verify(mockPage, never()).waitForFunction(anyString(), any(), any(Page.WaitForFunctionOptions.class));
+        } finally {
+            setStaticBooleanField("PERCY_RESIZE_SETTLE", false);
+            setStaticBooleanField("PERCY_RESPONSIVE_CAPTURE_RELOAD_PAGE", originalReload);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
+    @Test
+    public void responsiveCaptureFallsBackToPollingWhenBindingFails() throws Exception {
+        Page mockPage = mockSerializablePage();
+        when(mockPage.viewportSize())
+                .thenReturn(new com.microsoft.playwright.options.ViewportSize(1280, 720));
+        doThrow(new RuntimeException("binding already registered"))
+                .when(mockPage).exposeBinding(anyString(), any(com.microsoft.playwright.options.BindingCallback.class));
+        route("/percy/widths-config", 200, "{\"widths\":[{\"width\":480}]}");
+        route("/percy/snapshot", 200, "{\"data\":{\"snapshot-name\":\"Fallback\"}}");
+
+        try {
+            setStaticBooleanField("PERCY_RESIZE_SETTLE", true);
+            Percy percy = newEnabledPercy(mockPage,
+                    "{\"type\":\"web\",\"config\":{\"snapshot\":{\"responsiveSnapshotCapture\":true}}}");
+            Map<String, Object> options = new HashMap<>();
+            options.put("responsiveSnapshotCapture", true);
+            assertNotNull(percy.snapshot("Fallback", options));
+
+            verify(mockPage).evaluate("PercyDOM.waitForResize()");
+            verify(mockPage, atLeastOnce()).waitForFunction(eq("window.resizeCount === 1"), any(),
+                    any(Page.WaitForFunctionOptions.class));
+        } finally {
+            setStaticBooleanField("PERCY_RESIZE_SETTLE", false);
+            ROUTES.remove("/percy/healthcheck");
+            ROUTES.remove("/percy/dom.js");
+            ROUTES.remove("/percy/widths-config");
+            ROUTES.remove("/percy/snapshot");
+        }
+    }
+
     @Test
     public void responsiveCaptureParsesNonNumericSleepTimeWithoutSleeping() throws Exception {
         Page mockPage = mockSerializablePage();
@@ -1131,7 +2139,7 @@ public class PercyUnitTest {
 
         String originalSleep = getStaticStringField("RESPONSIVE_CAPTURE_SLEEP_TIME");
         try {
-            // Non-numeric sleep time -> Integer.parseInt throws NumberFormatException
+            // Non-numeric sleep time -> Double.parseDouble throws NumberFormatException
             // which is caught and ignored (no actual sleep).
             setStaticStringField("RESPONSIVE_CAPTURE_SLEEP_TIME", "abc");
             Percy percy = newEnabledPercy(mockPage,
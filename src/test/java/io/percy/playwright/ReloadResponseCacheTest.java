@@ -0,0 +1,210 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.Response;
+import com.microsoft.playwright.Route;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ReloadResponseCache}: record what the first load got, replay it
+ * afterwards.
+ */
+public class ReloadResponseCacheTest {
+
+    private static Request request(String method, String url) {
+        Request request = Mockito.mock(Request.class);
+        when(request.method()).thenReturn(method);
+        when(request.url()).thenReturn(url);
+        return request;
+    }
+
+    private static Route route(String method, String url) {
+        Request request = request(method, url);
+        Route route = Mockito.mock(Route.class);
+        when(route.request()).thenReturn(request);
+        return route;
+    }
+
+    private static Request finished(String url, int status, String responseUrl, String body) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("content-type", "text/css");
+        headers.put("content-encoding", "gzip");
+        headers.put("content-length", "42");
+        Response response = Mockito.mock(Response.class);
+        when(response.status()).thenReturn(status);
+        when(response.url()).thenReturn(responseUrl);
+        when(response.headers()).thenReturn(headers);
+        when(response.body()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+        Request request = request("GET", url);
+        when(request.response()).thenReturn(response);
+        return request;
+    }
+
+    private static Route.FulfillOptions fulfilled(Route route) {
+        ArgumentCaptor<Route.FulfillOptions> options = ArgumentCaptor.forClass(Route.FulfillOptions.class);
+        verify(route).fulfill(options.capture());
+        return options.getValue();
+    }
+
+    @Test
+    public void missesFallBackToEarlierRoutes() {
+        ReloadResponseCache cache = new ReloadResponseCache(1024);
+        Route route = route("GET", "http://app/site.css");
+        cache.handle(route);
+        verify(route).fallback();
+        verify(route, never()).fetch();
+        verify(route, never()).fulfill(any(Route.FulfillOptions.class));
+    }
+
+    @Test
+    public void recordsFinishedResponsesAndReplaysThem() {
+        ReloadResponseCache cache = new ReloadResponseCache(1024);
+        cache.recordFinished(finished("http://app/site.css", 200, "http://app/site.css", "body{}"));
+        assertEquals(1, cache.size());
+
+        Route reload = route("GET", "http://app/site.css");
+        cache.handle(reload);
+        verify(reload, never()).fallback();
+        Route.FulfillOptions replay = fulfilled(reload);
+        assertEquals(200, replay.status.intValue());
+        assertEquals("body{}", new String(replay.bodyBytes, StandardCharsets.UTF_8));
+        assertEquals("text/css", replay.headers.get("content-type"));
+        assertFalse(replay.headers.containsKey("content-encoding"));
+        assertFalse(replay.headers.containsKey("content-length"));
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void nonGetRequestsAreNeitherRecordedNorReplayed() {
+        ReloadResponseCache cache = new ReloadResponseCache(1024);
+        cache.recordFinished(finished("http://app/api", 200, "http://app/api", "ok"));
+        Route post = route("POST", "http://app/api");
+        cache.handle(post);
+        verify(post).fallback();
+        verify(post, never()).fulfill(any(Route.FulfillOptions.class));
+        assertEquals(0, cache.hits());
+
+        cache.recordFinished(request("POST", "http://app/other"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void onlySuccessfulDirectResponsesWithinBudgetAreRecorded() {
+        ReloadResponseCache cache = new ReloadResponseCache(8);
+
+        cache.recordFinished(finished("http://app/missing.js", 404, "http://app/missing.js", "nope"));
+        cache.recordFinished(finished("http://app/old", 200, "http://app/new", "moved"));
+        cache.recordFinished(finished("http://app/big.js", 200, "http://app/big.js", "0123456789"));
+        cache.recordFinished(request("GET", "http://app/aborted.js"));
+        Request gone = finished("http://app/gone.js", 200, "http://app/gone.js", "x");
+        when(gone.response().body()).thenThrow(new RuntimeException("Response body is unavailable"));
+        cache.recordFinished(gone);
+        assertEquals(0, cache.size());
+
+        cache.recordFinished(finished("http://app/small.js", 200, "http://app/small.js", "1234"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void userRoutesAnswerTheFirstLoadAndItIsWhatReloadsGet() {
+        // Routes run last-registered first; fallback() hands the request to the one before
+        List<Consumer<Route>> routes = new ArrayList<>();
+        AtomicReference<Consumer<Request>> onFinished = new AtomicReference<>();
+        Page page = Mockito.mock(Page.class);
+        doAnswer(invocation -> routes.add(invocation.getArgument(1)))
+                .when(page).route(anyString(), any(Consumer.class));
+        doAnswer(invocation -> { routes.remove(invocation.getArgument(1)); return null; })
+                .when(page).unroute(anyString(), any(Consumer.class));
+        doAnswer(invocation -> { onFinished.set(invocation.getArgument(0)); return null; })
+                .when(page).onRequestFinished(any(Consumer.class));
+
+        List<String> userRouteCalls = new ArrayList<>();
+        Consumer<Route> userRoute = route -> {
+            userRouteCalls.add(route.request().url());
+            route.fulfill(new Route.FulfillOptions().setStatus(200).setBody("mocked"));
+        };
+        routes.add(userRoute);
+
+        ReloadResponseCache cache = new ReloadResponseCache(1024);
+        cache.install(page);
+
+        assertEquals("mocked", load(routes, onFinished.get(), "http://app/api/user"));
+        assertEquals(1, userRouteCalls.size());
+        assertEquals("mocked", load(routes, onFinished.get(), "http://app/api/user"));
+        assertEquals(1, userRouteCalls.size());
+        assertEquals(1, cache.hits());
+
+        cache.uninstall();
+        verify(page).offRequestFinished(onFinished.get());
+        assertEquals(1, routes.size());
+        assertSame(userRoute, routes.get(0));
+    }
+
+    // Loads url through the page's routes the way Playwright dispatches them
+    private static String load(List<Consumer<Route>> routes, Consumer<Request> onFinished, String url) {
+        AtomicReference<String> answer = new AtomicReference<>("network");
+        int[] next = {routes.size() - 1};
+        Request request = request("GET", url);
+        Route route = Mockito.mock(Route.class);
+        when(route.request()).thenReturn(request);
+        doAnswer(invocation -> {
+            Route.FulfillOptions options = invocation.getArgument(0);
+            answer.set(options.body != null ? options.body : new String(options.bodyBytes, StandardCharsets.UTF_8));
+            return null;
+        }).when(route).fulfill(any(Route.FulfillOptions.class));
+        doAnswer(invocation -> {
+            if (--next[0] >= 0) { routes.get(next[0]).accept(route); }
+            return null;
+        }).when(route).fallback();
+        routes.get(next[0]).accept(route);
+
+        Response response = Mockito.mock(Response.class);
+        when(response.status()).thenReturn(200);
+        when(response.url()).thenReturn(url);
+        when(response.headers()).thenReturn(new HashMap<>());
+        when(response.body()).thenReturn(answer.get().getBytes(StandardCharsets.UTF_8));
+        when(request.response()).thenReturn(response);
+        onFinished.accept(request);
+        return answer.get();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void installAndUninstallUseTheSameHandlers() {
+        Page page = Mockito.mock(Page.class);
+        ReloadResponseCache cache = new ReloadResponseCache(1024);
+
+        cache.install(page);
+        ArgumentCaptor<Consumer<Route>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(page).route(eq(ReloadResponseCache.PATTERN), handler.capture());
+        ArgumentCaptor<Consumer<Request>> recorder = ArgumentCaptor.forClass(Consumer.class);
+        verify(page).onRequestFinished(recorder.capture());
+
+        recorder.getValue().accept(finished("http://app/", 200, "http://app/", "<html></html>"));
+        assertEquals(1, cache.size());
+
+        cache.uninstall();
+        verify(page).unroute(ReloadResponseCache.PATTERN, handler.getValue());
+        verify(page).offRequestFinished(recorder.getValue());
+        assertEquals(0, cache.size());
+
+        // A second uninstall is a no-op
+        cache.uninstall();
+        verify(page, times(1)).unroute(anyString(), any(Consumer.class));
+    }
+}
@@ -0,0 +1,103 @@
+package io.percy.playwright;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RequestCompression}: Accept-Encoding negotiation and the size
+ * threshold below which bodies are sent uncompressed.
+ */
+public class RequestCompressionTest {
+
+    private HttpResponse responseWithAcceptEncoding(String value) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        if (value != null) {
+            response.addHeader("Accept-Encoding", value);
+        }
+        return response;
+    }
+
+    private Map<String, Object> payloadOfSize(int size) {
+        StringBuilder dom = new StringBuilder();
+        while (dom.length() < size) {
+            dom.append('a');
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("dom", dom.toString());
+        return payload;
+    }
+
+    @Test
+    public void acceptsGzipWhenAdvertised() {
+        assertTrue(RequestCompression.acceptsGzip(responseWithAcceptEncoding("gzip")));
+        assertTrue(RequestCompression.acceptsGzip(responseWithAcceptEncoding("br, GZIP;q=0.8")));
+    }
+
+    @Test
+    public void doesNotAcceptGzipWhenMissingOrRefused() {
+        assertFalse(RequestCompression.acceptsGzip(responseWithAcceptEncoding(null)));
+        assertFalse(RequestCompression.acceptsGzip(responseWithAcceptEncoding("identity")));
+        assertFalse(RequestCompression.acceptsGzip(responseWithAcceptEncoding("gzip;q=0")));
+        assertFalse(RequestCompression.acceptsGzip(responseWithAcceptEncoding("gzip;q=0.000")));
+    }
+
+    @Test
+    public void malformedQualityStillCountsAsAccepted() {
+        assertTrue(RequestCompression.acceptsGzip(responseWithAcceptEncoding("gzip;q=high")));
+    }
+
+    @Test
+    public void smallBodiesAreNotCompressed() {
+        HttpEntity entity = RequestCompression.jsonEntity(new HashMap<String, Object>(), true);
+        assertFalse(RequestCompression.isCompressed(entity));
+        assertTrue(entity instanceof JsonStreamEntity);
+    }
+
+    @Test
+    public void largeBodiesAreNotCompressedWhenCliDoesNotAcceptGzip() {
+        HttpEntity entity = RequestCompression.jsonEntity(payloadOfSize(RequestCompression.threshold()), false);
+        assertFalse(RequestCompression.isCompressed(entity));
+    }
+
+    @Test
+    public void largeBodiesAreGzippedAndRoundTrip() throws Exception {
+        Map<String, Object> payload = payloadOfSize(RequestCompression.threshold());
+        String body = new JSONObject(payload).toString();
+        HttpEntity entity = RequestCompression.jsonEntity(payload, true);
+
+        assertTrue(RequestCompression.isCompressed(entity));
+        assertTrue(entity.isChunked());
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        entity.writeTo(compressed);
+        assertTrue(compressed.size() < body.length());
+
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new java.io.ByteArrayInputStream(compressed.toByteArray()))) {
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                inflated.write(chunk, 0, read);
+            }
+        }
+        assertEquals(body, new String(inflated.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void isCompressedHandlesNullEntity() {
+        assertFalse(RequestCompression.isCompressed(null));
+    }
+}
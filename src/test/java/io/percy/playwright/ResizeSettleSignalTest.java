@@ -0,0 +1,118 @@
+package io.percy.playwright;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.TimeoutError;
+import com.microsoft.playwright.options.BindingCallback;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ResizeSettleSignal}: binding registration, arming and the
+ * adaptive settle wait.
+ */
+public class ResizeSettleSignalTest {
+
+    private static BindingCallback exposedBinding(Page page) {
+        ArgumentCaptor<BindingCallback> callback = ArgumentCaptor.forClass(BindingCallback.class);
+        verify(page).exposeBinding(eq(ResizeSettleSignal.BINDING), callback.capture());
+        return callback.getValue();
+    }
+
+    @Test
+    public void exposesBindingOncePerPage() {
+        Page page = Mockito.mock(Page.class);
+
+        ResizeSettleSignal first = ResizeSettleSignal.forPage(page, 5000);
+        assertSame(first, ResizeSettleSignal.forPage(page, 5000));
+        verify(page, times(1)).exposeBinding(eq(ResizeSettleSignal.BINDING), any(BindingCallback.class));
+
+        assertNotSame(first, ResizeSettleSignal.forPage(Mockito.mock(Page.class), 5000));
+    }
+
+    @Test
+    public void failedExposeIsNotRemembered() {
+        Page page = Mockito.mock(Page.class);
+        doThrow(new RuntimeException("already registered"))
+                .doNothing()
+                .when(page).exposeBinding(anyString(), any(BindingCallback.class));
+
+        assertThrows(RuntimeException.class, () -> ResizeSettleSignal.forPage(page, 5000));
+        assertNotNull(ResizeSettleSignal.forPage(page, 5000));
+    }
+
+    @Test
+    public void awaitReturnsOncePageReportsTheResize() {
+        Page page = Mockito.mock(Page.class);
+        ResizeSettleSignal signal = ResizeSettleSignal.forPage(page, 5000);
+        BindingCallback binding = exposedBinding(page);
+
+        // The page reports the settle while Java is waiting on it
+        doAnswer(invocation -> {
+            BooleanSupplier condition = invocation.getArgument(0);
+            assertFalse(condition.getAsBoolean());
+            binding.call(null, 1);
+            assertTrue(condition.getAsBoolean());
+            return null;
+        }).when(page).waitForCondition(any(BooleanSupplier.class), any(Page.WaitForConditionOptions.class));
+
+        signal.arm(page, 2);
+        verify(page).evaluate(ResizeSettleSignal.LISTENER_JS, 2);
+        assertTrue(signal.await(page, 1));
+    }
+
+    @Test
+    public void awaitReportsTimeouts() {
+        Page page = Mockito.mock(Page.class);
+        ResizeSettleSignal signal = new ResizeSettleSignal(5000);
+        doThrow(new TimeoutError("Timeout 5000ms exceeded"))
+                .when(page).waitForCondition(any(BooleanSupplier.class), any(Page.WaitForConditionOptions.class));
+
+        assertFalse(signal.await(page, 1));
+        assertEquals(5000, signal.timeoutMs());
+    }
+
+    @Test
+    public void armResetsTheCountAndClampsFrames() {
+        Page page = Mockito.mock(Page.class);
+        ResizeSettleSignal signal = new ResizeSettleSignal(5000);
+        signal.settled(3);
+        signal.settled(2);
+
+        signal.arm(page, 0);
+        verify(page).evaluate(ResizeSettleSignal.LISTENER_JS, 1);
+
+        // Stale calls from before the reload are ignored once counting restarts
+        doAnswer(invocation -> {
+            BooleanSupplier condition = invocation.getArgument(0);
+            assertFalse(condition.getAsBoolean());
+            return null;
+        }).when(page).waitForCondition(any(BooleanSupplier.class), any(Page.WaitForConditionOptions.class));
+        signal.await(page, 1);
+    }
+
+    @Test
+    public void timeoutAdaptsToObservedSettles() {
+        Page page = Mockito.mock(Page.class);
+        ResizeSettleSignal signal = new ResizeSettleSignal(5000);
+        assertEquals(5000, signal.timeoutMs());
+
+        // A fast settle brings the limit down to the floor
+        assertTrue(signal.await(page, 0));
+        assertEquals(ResizeSettleSignal.MIN_TIMEOUT_MS, signal.timeoutMs());
+
+        ArgumentCaptor<Page.WaitForConditionOptions> options =
+                ArgumentCaptor.forClass(Page.WaitForConditionOptions.class);
+        signal.await(page, 0);
+        verify(page, times(2)).waitForCondition(any(BooleanSupplier.class), options.capture());
+        assertEquals(ResizeSettleSignal.MIN_TIMEOUT_MS, options.getValue().timeout.doubleValue());
+
+        // The configured maximum is never below the floor either
+        assertEquals(ResizeSettleSignal.MIN_TIMEOUT_MS, new ResizeSettleSignal(10).timeoutMs());
+    }
+}
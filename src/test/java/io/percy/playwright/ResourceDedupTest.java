@@ -0,0 +1,103 @@
+package io.percy.playwright;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ResourceDedup}: feature negotiation and the shared-resource
+ * payload format.
+ */
+public class ResourceDedupTest {
+
+    private HttpResponse responseWithFeatures(String value) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        if (value != null) {
+            response.addHeader(ResourceDedup.FEATURES_HEADER, value);
+        }
+        return response;
+    }
+
+    private static Map<String, Object> resource(String url, String content) {
+        Map<String, Object> resource = new HashMap<>();
+        resource.put("url", url);
+        resource.put("content", content);
+        resource.put("mimetype", "image/png");
+        return resource;
+    }
+
+    private static Map<String, Object> width(int width, List<Object> resources, List<Object> cookies) {
+        Map<String, Object> dom = new HashMap<>();
+        dom.put("html", "<html></html>");
+        dom.put("width", width);
+        dom.put("resources", resources);
+        dom.put("cookies", cookies);
+        return dom;
+    }
+
+    @Test
+    public void supportedOnlyWhenAdvertised() {
+        assertTrue(ResourceDedup.isSupported(responseWithFeatures("resource-refs")));
+        assertTrue(ResourceDedup.isSupported(responseWithFeatures("other, Resource-Refs")));
+        assertFalse(ResourceDedup.isSupported(responseWithFeatures("other")));
+        assertFalse(ResourceDedup.isSupported(responseWithFeatures(null)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sharesIdenticalResourcesAndCookiesBetweenWidths() {
+        Map<String, Object> canvas = resource("/__percy_canvas_1.png", "AAAA");
+        List<Object> cookies = Collections.singletonList(Collections.singletonMap("name", "session"));
+        List<Object> domSnapshot = new ArrayList<>();
+        domSnapshot.add(width(375, Arrays.asList(canvas, resource("/blob-1", "BBBB")), cookies));
+        domSnapshot.add(width(1280, Collections.singletonList(resource("/__percy_canvas_1.png", "AAAA")),
+                new ArrayList<>(cookies)));
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("name", "Home");
+        payload.put("domSnapshot", domSnapshot);
+
+        assertTrue(ResourceDedup.apply(payload));
+
+        Map<String, Object> shared = (Map<String, Object>) payload.get("sharedResources");
+        Map<String, Object> sharedCookies = (Map<String, Object>) payload.get("sharedCookies");
+        assertEquals(2, shared.size());
+        assertEquals(1, sharedCookies.size());
+
+        List<Map<String, Object>> widths = (List<Map<String, Object>>) payload.get("domSnapshot");
+        Map<String, Object> mobile = widths.get(0);
+        Map<String, Object> desktop = widths.get(1);
+        assertFalse(mobile.containsKey("resources"));
+        assertFalse(mobile.containsKey("cookies"));
+        assertEquals(375, mobile.get("width"));
+        assertEquals("<html></html>", mobile.get("html"));
+        String canvasRef = ((List<String>) mobile.get("resourceRefs")).get(0);
+        assertEquals(Collections.singletonList(canvasRef), desktop.get("resourceRefs"));
+        assertEquals(canvas, shared.get(canvasRef));
+        assertEquals(mobile.get("cookiesRef"), desktop.get("cookiesRef"));
+        assertEquals(cookies, sharedCookies.get(mobile.get("cookiesRef")));
+
+        // The caller's per-width maps are left untouched
+        assertTrue(((Map<String, Object>) domSnapshot.get(0)).containsKey("resources"));
+    }
+
+    @Test
+    public void leavesSingleWidthPayloadsAlone() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("domSnapshot", Collections.singletonList(width(375, new ArrayList<>(), new ArrayList<>())));
+        assertFalse(ResourceDedup.apply(payload));
+        assertFalse(payload.containsKey("sharedResources"));
+
+        payload.put("domSnapshot", "<html></html>");
+        assertFalse(ResourceDedup.apply(payload));
+    }
+}
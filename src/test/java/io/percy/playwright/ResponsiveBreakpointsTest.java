@@ -0,0 +1,160 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ResponsiveBreakpoints}: media query parsing and width grouping.
+ */
+public class ResponsiveBreakpointsTest {
+
+    private static Map<String, Object> width(int width) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("width", width);
+        return entry;
+    }
+
+    private static Map<String, Object> width(int width, int height) {
+        Map<String, Object> entry = width(width);
+        entry.put("height", height);
+        return entry;
+    }
+
+    private static Map<String, Object> dom(String html) {
+        Map<String, Object> dom = new HashMap<>();
+        dom.put("html", html);
+        return dom;
+    }
+
+    @Test
+    public void parsesMinMaxAndExactWidthFeatures() {
+        SortedSet<Integer> cuts = ResponsiveBreakpoints.cuts(Arrays.asList(
+                "screen and (min-width: 768px)",
+                "(max-width: 1023.98px)",
+                "(min-device-width: 40em) and (max-width: 80rem)",
+                "(width: 600px)",
+                "print"));
+        assertEquals(new TreeSet<>(Arrays.asList(600, 601, 640, 768, 1024, 1281)), cuts);
+    }
+
+    @Test
+    public void parsesRangeSyntax() {
+        SortedSet<Integer> cuts = ResponsiveBreakpoints.cuts(Arrays.asList(
+                "(width >= 768px)",
+                "(400px < width <= 700px)",
+                "(width < 30em)"));
+        assertEquals(new TreeSet<>(Arrays.asList(401, 480, 701, 768)), cuts);
+    }
+
+    @Test
+    public void refusesQueriesItCannotReduceToWidthCuts() {
+        assertNull(ResponsiveBreakpoints.cuts(Collections.singletonList("(orientation: portrait)")));
+        assertNull(ResponsiveBreakpoints.cuts(Collections.singletonList("(min-aspect-ratio: 16/9)")));
+        assertNull(ResponsiveBreakpoints.cuts(Collections.singletonList("(min-width: 50vw)")));
+        assertNull(ResponsiveBreakpoints.cuts(Collections.singletonList("(min-width: 500)")));
+        assertNull(ResponsiveBreakpoints.cuts(Collections.singletonList("(max-width: calc(100px + 2em))")));
+        assertEquals(Collections.singleton(0),
+                ResponsiveBreakpoints.cuts(Collections.singletonList("(min-width: 0)")));
+    }
+
+    @Test
+    public void ignoresQueriesWithoutWidthFeatures() {
+        assertTrue(ResponsiveBreakpoints.cuts(Arrays.asList(
+                "(prefers-color-scheme: dark)", "(min-height: 600px)", null)).isEmpty());
+    }
+
+    private static List<Integer> widthsOf(List<Map<String, Object>> captures) {
+        List<Integer> widths = new ArrayList<>();
+        for (Map<String, Object> capture : captures) {
+            widths.add((Integer) capture.get("width"));
+        }
+        return widths;
+    }
+
+    @Test
+    public void capturesTheEndsOfEachGroupFirst() {
+        SortedSet<Integer> cuts = new TreeSet<>(Arrays.asList(768, 1024));
+        List<Map<String, Object>> widths = Arrays.asList(width(1280), width(375), width(414),
+                width(600), width(800), width(1920), width(390, 844));
+
+        ResponsiveBreakpoints.Plan plan = ResponsiveBreakpoints.plan(widths, 720, cuts, 100, 100);
+        // 375..600 and 1280..1920 share a group; 390x844 has its own height; ascending order
+        assertEquals(Arrays.asList(375, 390, 600, 800, 1280, 1920), widthsOf(plan.captures()));
+        assertEquals(720, plan.captures().get(0).get("height"));
+        assertEquals(844, plan.captures().get(1).get("height"));
+    }
+
+    @Test
+    public void startsAtTheCurrentViewportOnlyWhenItIsRequested() {
+        SortedSet<Integer> cuts = new TreeSet<>(Collections.singletonList(768));
+        List<Map<String, Object>> widths = Arrays.asList(width(375), width(1280), width(1920));
+
+        // 1440 is not a requested width, so it is never captured
+        assertEquals(Arrays.asList(375, 1280, 1920),
+                widthsOf(ResponsiveBreakpoints.plan(widths, 720, cuts, 1440, 720).captures()));
+        assertEquals(Arrays.asList(1920, 375, 1280),
+                widthsOf(ResponsiveBreakpoints.plan(widths, 720, cuts, 1920, 720).captures()));
+    }
+
+    @Test
+    public void collapsesAGroupWhenItsEndsHaveTheSameFingerprint() {
+        SortedSet<Integer> cuts = new TreeSet<>(Collections.singletonList(768));
+        List<Map<String, Object>> widths = Arrays.asList(width(1280), width(375), width(414), width(600));
+        ResponsiveBreakpoints.Plan plan = ResponsiveBreakpoints.plan(widths, 720, cuts, 0, 0);
+        assertEquals(Arrays.asList(375, 600, 1280), widthsOf(plan.captures()));
+
+        assertTrue(plan.verify(Arrays.asList("mobile", "mobile", "desktop")).isEmpty());
+        List<Map<String, Object>> doms = plan.expand(Arrays.asList(dom("375"), dom("600"), dom("desktop")));
+        assertEquals(Arrays.asList(1280, 375, 414, 600), widthsOf(doms));
+        assertEquals("desktop", doms.get(0).get("html"));
+        assertEquals("375", doms.get(2).get("html"));
+        assertEquals("600", doms.get(3).get("html"));
+        assertNotSame(doms.get(1), doms.get(2));
+    }
+
+    @Test
+    public void capturesEveryWidthOfAGroupWhoseEndsDiffer() {
+        SortedSet<Integer> cuts = new TreeSet<>(Collections.singletonList(768));
+        List<Map<String, Object>> widths = Arrays.asList(width(375), width(414), width(500), width(600));
+        ResponsiveBreakpoints.Plan plan = ResponsiveBreakpoints.plan(widths, 720, cuts, 0, 0);
+
+        // e.g. a script writing innerWidth into the page
+        assertEquals(Arrays.asList(414, 500), widthsOf(plan.verify(Arrays.asList("375px", "600px"))));
+        List<Map<String, Object>> doms = plan.expand(
+                Arrays.asList(dom("375"), dom("600"), dom("414"), dom("500")));
+        assertEquals(4, doms.size());
+        for (Map<String, Object> dom : doms) {
+            assertEquals(String.valueOf(dom.get("width")), dom.get("html"));
+        }
+    }
+
+    @Test
+    public void treatsMissingFingerprintsAsDifferent() {
+        SortedSet<Integer> cuts = new TreeSet<>();
+        ResponsiveBreakpoints.Plan plan = ResponsiveBreakpoints.plan(
+                Arrays.asList(width(375), width(414), width(600)), 720, cuts, 0, 0);
+
+        assertEquals(Collections.singletonList(414), widthsOf(plan.verify(Arrays.asList(null, null))));
+    }
+
+    @Test
+    public void expandSkipsWidthsThatWereNotCaptured() {
+        SortedSet<Integer> cuts = new TreeSet<>(Collections.singletonList(768));
+        ResponsiveBreakpoints.Plan plan = ResponsiveBreakpoints.plan(
+                Arrays.asList(width(1280), width(375), width(414), width(600)), 720, cuts, 0, 0);
+
+        // Capture stopped before the group was verified: its middle width is not guessed
+        List<Map<String, Object>> doms = plan.expand(Arrays.asList(dom("375"), dom("600")));
+        assertEquals(Arrays.asList(375, 600), widthsOf(doms));
+    }
+}
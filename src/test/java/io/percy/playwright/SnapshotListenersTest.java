@@ -0,0 +1,39 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SnapshotListeners}: registration and failure isolation.
+ */
+public class SnapshotListenersTest {
+
+    @Test
+    public void failingListenerDoesNotStopTheOthers() {
+        List<String> seen = new ArrayList<>();
+        SnapshotListener failing = metrics -> { throw new IllegalStateException("broken"); };
+        SnapshotListener recording = metrics -> seen.add(metrics.getName());
+        SnapshotMetrics metrics = new SnapshotMetrics("home", SnapshotMetrics.Outcome.UPLOADED,
+                new HashMap<>(), 0, 0, 1, null);
+
+        SnapshotListeners.add(null);
+        SnapshotListeners.add(failing);
+        SnapshotListeners.add(recording);
+        try {
+            SnapshotListeners.publish(metrics);
+            assertEquals(1, seen.size());
+
+            SnapshotListeners.remove(recording);
+            SnapshotListeners.publish(metrics);
+            assertEquals(1, seen.size());
+        } finally {
+            SnapshotListeners.remove(failing);
+            SnapshotListeners.remove(recording);
+        }
+    }
+}
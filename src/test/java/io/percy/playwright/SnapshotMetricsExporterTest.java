@@ -0,0 +1,92 @@
+package io.percy.playwright;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SnapshotMetricsExporter}: JSON lines and Prometheus text output.
+ */
+public class SnapshotMetricsExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static SnapshotMetrics metrics(String name, SnapshotMetrics.Outcome outcome) {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        phases.put(SnapshotMetrics.SERIALIZE, 500_000_000L);
+        phases.put(SnapshotMetrics.POST, 250_000_000L);
+        return new SnapshotMetrics(name, outcome, phases, 1_000_000_000L, 2048, 2, null);
+    }
+
+    @Test
+    public void jsonLinesAppendsOneObjectPerSnapshot() throws Exception {
+        Path file = tempDir.resolve("metrics.jsonl");
+        SnapshotMetricsExporter exporter =
+                new SnapshotMetricsExporter(file, SnapshotMetricsExporter.Format.JSON_LINES);
+        exporter.onSnapshot(metrics("a", SnapshotMetrics.Outcome.UPLOADED));
+        exporter.onSnapshot(metrics("b", SnapshotMetrics.Outcome.FAILED));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        JSONObject first = new JSONObject(lines.get(0));
+        assertEquals("a", first.getString("name"));
+        assertEquals("uploaded", first.getString("outcome"));
+        assertEquals(1000, first.getLong("totalMs"));
+        assertEquals(500, first.getJSONObject("phasesMs").getLong("serialize"));
+        assertEquals(2048, first.getLong("payloadBytes"));
+        assertEquals(2, first.getInt("widths"));
+        assertEquals("failed", new JSONObject(lines.get(1)).getString("outcome"));
+    }
+
+    @Test
+    public void prometheusRewritesRunningTotals() throws Exception {
+        Path file = tempDir.resolve("percy.prom");
+        SnapshotMetricsExporter exporter =
+                new SnapshotMetricsExporter(file, SnapshotMetricsExporter.Format.PROMETHEUS);
+        exporter.onSnapshot(metrics("a", SnapshotMetrics.Outcome.UPLOADED));
+        exporter.onSnapshot(metrics("b", SnapshotMetrics.Outcome.UPLOADED));
+        exporter.onSnapshot(metrics("c", SnapshotMetrics.Outcome.SKIPPED));
+
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(text.contains("percy_snapshots_total{outcome=\"uploaded\"} 2\n"));
+        assertTrue(text.contains("percy_snapshots_total{outcome=\"skipped\"} 1\n"));
+        assertTrue(text.contains("percy_snapshots_total{outcome=\"failed\"} 0\n"));
+        assertTrue(text.contains("percy_snapshot_seconds_sum 3.000000\n"));
+        assertTrue(text.contains("percy_snapshot_seconds_count 3\n"));
+        assertTrue(text.contains("percy_snapshot_phase_seconds_total{phase=\"serialize\"} 1.500000\n"));
+        assertTrue(text.contains("percy_snapshot_payload_bytes_total 6144\n"));
+        // Only the metrics file is left behind
+        assertEquals(1, Files.list(tempDir).count());
+    }
+
+    @Test
+    public void writeFailuresAreReportedToTheCaller() {
+        Path file = tempDir.resolve("missing").resolve("metrics.jsonl");
+        SnapshotMetricsExporter exporter =
+                new SnapshotMetricsExporter(file, SnapshotMetricsExporter.Format.JSON_LINES);
+        assertThrows(RuntimeException.class,
+                () -> exporter.onSnapshot(metrics("a", SnapshotMetrics.Outcome.UPLOADED)));
+    }
+
+    @Test
+    public void formatFollowsTheSettingOrTheFileExtension() {
+        assertEquals(SnapshotMetricsExporter.Format.PROMETHEUS, SnapshotMetricsExporter.format(null, "percy.prom"));
+        assertEquals(SnapshotMetricsExporter.Format.JSON_LINES, SnapshotMetricsExporter.format("", "metrics.log"));
+        assertEquals(SnapshotMetricsExporter.Format.PROMETHEUS, SnapshotMetricsExporter.format("Prometheus", "m.txt"));
+        assertEquals(SnapshotMetricsExporter.Format.JSON_LINES, SnapshotMetricsExporter.format("jsonl", "percy.prom"));
+        // Nothing is exported unless PERCY_METRICS_FILE is set
+        if (System.getenv("PERCY_METRICS_FILE") == null) {
+            assertNull(SnapshotMetricsExporter.fromEnv());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SnapshotMetrics}: accessors and the one-line breakdown.
+ */
+public class SnapshotMetricsTest {
+
+    private static SnapshotMetrics metrics(SnapshotMetrics.Outcome outcome, long bytes, String error) {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        phases.put(SnapshotMetrics.SERIALIZE, 830_000_000L);
+        phases.put(SnapshotMetrics.POST, 310_000_000L);
+        return new SnapshotMetrics("home", outcome, phases, 1_204_000_000L, bytes, 1, error);
+    }
+
+    @Test
+    public void toStringListsPhasesSizeAndError() {
+        assertEquals("\"home\" uploaded in 1204ms (serialize 830ms, post 310ms), 2.5 MB",
+                metrics(SnapshotMetrics.Outcome.UPLOADED, 2_621_440, null).toString());
+        assertEquals("\"home\" failed in 1204ms (serialize 830ms, post 310ms): boom",
+                metrics(SnapshotMetrics.Outcome.FAILED, 0, "boom").toString());
+    }
+
+    @Test
+    public void phasesAreReadOnlyAndMissingPhasesAreZero() {
+        SnapshotMetrics metrics = metrics(SnapshotMetrics.Outcome.UPLOADED, 0, null);
+        assertEquals(830, metrics.getPhaseMillis(SnapshotMetrics.SERIALIZE));
+        assertEquals(0, metrics.getPhaseMillis(SnapshotMetrics.RESIZE));
+        assertEquals(1204, metrics.getTotalMillis());
+        assertThrows(UnsupportedOperationException.class,
+                () -> metrics.getPhaseNanos().put(SnapshotMetrics.RESIZE, 1L));
+    }
+}
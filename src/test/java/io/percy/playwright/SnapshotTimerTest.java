@@ -0,0 +1,53 @@
+package io.percy.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SnapshotTimer}: phase accumulation and the no-op timer.
+ */
+public class SnapshotTimerTest {
+
+    @Test
+    public void repeatedPhasesAreSummedInFirstRunOrder() {
+        SnapshotTimer timer = new SnapshotTimer();
+        long started = timer.start();
+        timer.record(SnapshotMetrics.RESIZE, started);
+        timer.record(SnapshotMetrics.SERIALIZE, timer.start() - 5_000_000);
+        timer.record(SnapshotMetrics.RESIZE, timer.start() - 3_000_000);
+        timer.widths(3);
+        timer.payloadBytes(10);
+        // A resent body replaces the size of the first attempt
+        timer.payloadBytes(12);
+        timer.error("first");
+        timer.error("second");
+
+        SnapshotMetrics metrics = timer.finish("Home", SnapshotMetrics.Outcome.FAILED);
+        assertEquals(Arrays.asList(SnapshotMetrics.RESIZE, SnapshotMetrics.SERIALIZE),
+                new ArrayList<>(metrics.getPhaseNanos().keySet()));
+        assertTrue(metrics.getPhaseMillis(SnapshotMetrics.RESIZE) >= 3);
+        assertTrue(metrics.getPhaseMillis(SnapshotMetrics.SERIALIZE) >= 5);
+        assertEquals(3, metrics.getWidths());
+        assertEquals(12, metrics.getPayloadBytes());
+        assertEquals("first", metrics.getError());
+        assertTrue(metrics.getTotalNanos() >= 0);
+    }
+
+    @Test
+    public void noopTimerRecordsNothing() {
+        SnapshotTimer.NOOP.record(SnapshotMetrics.POST, SnapshotTimer.NOOP.start() - 1_000_000);
+        SnapshotTimer.NOOP.payloadBytes(10);
+        SnapshotTimer.NOOP.widths(2);
+        SnapshotTimer.NOOP.error("ignored");
+
+        SnapshotMetrics metrics = SnapshotTimer.NOOP.finish("x", SnapshotMetrics.Outcome.UPLOADED);
+        assertTrue(metrics.getPhaseNanos().isEmpty());
+        assertEquals(0, metrics.getPayloadBytes());
+        assertEquals(0, metrics.getWidths());
+        assertNull(metrics.getError());
+    }
+}
@@ -0,0 +1,163 @@
+package io.percy.playwright;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SnapshotUploader}: bounded background upload queue.
+ */
+public class SnapshotUploaderTest {
+
+    @Test
+    public void submitCompletesFutureWithUploadResult() throws Exception {
+        SnapshotUploader uploader = new SnapshotUploader(1, 2);
+        JSONObject result = new JSONObject();
+
+        CompletableFuture<JSONObject> future = uploader.submit(() -> result);
+
+        assertSame(result, future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submitCompletesExceptionallyWhenUploadThrows() {
+        SnapshotUploader uploader = new SnapshotUploader(1, 2);
+
+        CompletableFuture<JSONObject> future = uploader.submit(() -> {
+            throw new IllegalStateException("upload boom");
+        });
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void submitBlocksWhileQueueIsFull() throws Exception {
+        SnapshotUploader uploader = new SnapshotUploader(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        uploader.submit(() -> {
+            awaitQuietly(release);
+            return null;
+        });
+
+        AtomicBoolean secondQueued = new AtomicBoolean(false);
+        Thread producer = new Thread(() -> {
+            uploader.submit(() -> null);
+            secondQueued.set(true);
+        });
+        producer.start();
+
+        // The single slot is taken, so the second submit must still be waiting.
+        producer.join(300);
+        assertFalse(secondQueued.get());
+
+        release.countDown();
+        producer.join(5000);
+        assertTrue(secondQueued.get());
+        assertTrue(uploader.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void flushWaitsForPendingUploads() {
+        SnapshotUploader uploader = new SnapshotUploader(2, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        uploader.submit(() -> {
+            awaitQuietly(release);
+            return null;
+        });
+        assertEquals(1, uploader.pendingCount());
+
+        // Still blocked -> flush times out.
+        assertFalse(uploader.flush(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(uploader.flush(5, TimeUnit.SECONDS));
+        assertEquals(0, uploader.pendingCount());
+    }
+
+    @Test
+    public void flushOnExitReportsAbandonedUploads() {
+        SnapshotUploader uploader = new SnapshotUploader(1, 4);
+        assertEquals(0, uploader.flushOnExit(1, TimeUnit.MILLISECONDS));
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            uploader.submit(() -> {
+                awaitQuietly(release);
+                return null;
+            });
+        }
+        assertEquals(2, uploader.flushOnExit(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertEquals(0, uploader.flushOnExit(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void flushReturnsImmediatelyWhenNothingQueued() {
+        assertTrue(new SnapshotUploader(1, 1).flush(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void flushIgnoresFailedUploads() {
+        SnapshotUploader uploader = new SnapshotUploader(1, 2);
+        uploader.submit(() -> {
+            throw new IllegalStateException("upload boom");
+        });
+        assertTrue(uploader.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submitFailsFutureWhenInterruptedWaitingForRoom() throws Exception {
+        SnapshotUploader uploader = new SnapshotUploader(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        uploader.submit(() -> {
+            awaitQuietly(release);
+            return null;
+        });
+        try {
+            Thread.currentThread().interrupt();
+            CompletableFuture<JSONObject> future = uploader.submit(() -> null);
+            assertTrue(future.isCompletedExceptionally());
+        } finally {
+            Thread.interrupted();
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void sharedUploaderIsASingleton() {
+        assertSame(SnapshotUploader.shared(), SnapshotUploader.shared());
+    }
+
+    @Test
+    public void flushSharedOnExitDrainsTheSharedUploader() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<JSONObject> upload = SnapshotUploader.shared().submit(() -> {
+            started.countDown();
+            awaitQuietly(release);
+            return new JSONObject().put("name", "late");
+        });
+        awaitQuietly(started);
+        new Thread(release::countDown).start();
+        assertEquals(0, SnapshotUploader.flushSharedOnExit());
+        assertTrue(upload.isDone());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
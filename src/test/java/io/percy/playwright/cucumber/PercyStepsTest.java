@@ -10,8 +10,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
-import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 class PercyStepsTest {
 
@@ -37,13 +38,7 @@ class PercyStepsTest {
     }
 
     private void setPercyField(Percy percy) {
-        try {
-            Field field = PercySteps.class.getDeclaredField("percy");
-            field.setAccessible(true);
-            field.set(null, percy);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        PercySteps.scenario().percy = percy;
     }
 
     // ------------------------------------------------------------------
@@ -65,6 +60,68 @@ class PercyStepsTest {
         assertNull(PercySteps.getPercy());
     }
 
+    @Test
+    void testSetPageWithSamePageKeepsPercyAndRegions() {
+        initWithMockPercy();
+        when(mockPercy.createRegion(anyMap())).thenReturn(new HashMap<>());
+        steps.iCreateIgnoreRegionCSS(".ad");
+
+        PercySteps.setPage(mockPage);
+
+        assertSame(mockPercy, PercySteps.getPercy());
+        assertEquals(1, PercySteps.scenario().regions.size());
+    }
+
+    @Test
+    void testSetPageWithAnotherPageStartsOver() {
+        initWithMockPercy();
+        when(mockPercy.createRegion(anyMap())).thenReturn(new HashMap<>());
+        steps.iCreateIgnoreRegionCSS(".ad");
+
+        PercySteps.setPage(mock(Page.class));
+
+        assertNotSame(mockPercy, PercySteps.getPercy());
+        assertTrue(PercySteps.scenario().regions.isEmpty());
+    }
+
+    @Test
+    void testScenariosOnOtherThreadsDoNotShareState() throws Exception {
+        initWithMockPercy();
+        Map<String, Object> mainRegion = new HashMap<>();
+        mainRegion.put("algorithm", "ignore");
+        when(mockPercy.createRegion(anyMap())).thenReturn(mainRegion);
+        steps.iCreateIgnoreRegionCSS(".main-only");
+
+        Percy otherPercy = mock(Percy.class);
+        Map<String, Object> otherRegion = new HashMap<>();
+        otherRegion.put("algorithm", "standard");
+        when(otherPercy.createRegion(anyMap())).thenReturn(otherRegion);
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            other.submit(() -> {
+                assertNull(PercySteps.getPercy());
+                PercySteps.setPage(mock(Page.class));
+                setPercyField(otherPercy);
+                steps.iCreateConsiderRegionCSS(".other-only");
+                steps.iTakeSnapshotWithRegions("Other");
+                PercySteps.reset();
+                return null;
+            }).get();
+        } finally {
+            other.shutdownNow();
+        }
+
+        assertSame(mockPercy, PercySteps.getPercy());
+        steps.iTakeSnapshotWithRegions("Main");
+
+        ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(mockPercy).snapshot(eq("Main"), captor.capture());
+        assertEquals(Collections.singletonList(mainRegion), captor.getValue().get("regions"));
+        verify(otherPercy).snapshot(eq("Other"), captor.capture());
+        assertEquals(Collections.singletonList(otherRegion), captor.getValue().get("regions"));
+    }
+
     @Test
     void testIHaveAPercyInstanceThrowsWithoutPage() {
         assertThrows(IllegalStateException.class, steps::iHaveAPercyInstance);
@@ -468,25 +525,15 @@ class PercyStepsTest {
 
     @Test
     void testIHaveAPercyInstanceConstructsPercyWhenPageSetButPercyNull() throws Exception {
-        // Set the page field directly (without setPage, which would also set percy),
-        // then null the percy field so iHaveAPercyInstance hits the `new Percy(page)` branch.
-        setStaticField("page", mockPage);
-        setStaticField("percy", null);
+        // Set the page directly (without setPage, which would also set percy),
+        // then null the percy so iHaveAPercyInstance hits the `new Percy(page)` branch.
+        PercySteps.scenario().page = mockPage;
+        PercySteps.scenario().percy = null;
 
         steps.iHaveAPercyInstance();
         assertNotNull(PercySteps.getPercy());
     }
 
-    private void setStaticField(String name, Object value) {
-        try {
-            Field field = PercySteps.class.getDeclaredField(name);
-            field.setAccessible(true);
-            field.set(null, value);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     // ------------------------------------------------------------------
     // buildOptions: scopeOptions case parses JSON into a Map.
     // ------------------------------------------------------------------